@@ -0,0 +1,162 @@
+package animeinfo;
+
+import tool.DataTool;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which ANN link a search title resolved to, so lookups can skip the Google and Bing searches.
+ * Titles that could not be resolved are remembered too, for a shorter time.
+ */
+public class ANNLinkCache {
+    public static final int MAX_ENTRIES = 100000;
+    public static final long FOUND_TTL = TimeUnit.DAYS.toMillis(30), NOT_FOUND_TTL = TimeUnit.DAYS.toMillis(1);
+    private static final String TAB = "\t";
+    private static final Map<String, ResolvedLink> titleToResolvedLinkMap;
+    private static boolean changed;
+
+    /**
+     * A resolved link and when it was resolved.
+     */
+    private static class ResolvedLink {
+        private final String link;
+        private final long time;
+
+        private ResolvedLink(String link, long time) {
+            this.link = link;
+            this.time = time;
+        }
+
+        private boolean isExpired(long now) {
+            return now - time > (link.equals("") ? NOT_FOUND_TTL : FOUND_TTL);
+        }
+    }
+
+    // static initializer
+    static {
+        // least recently used entries are dropped first once the cache is full
+        titleToResolvedLinkMap = new LinkedHashMap<String, ResolvedLink>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ResolvedLink> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+        changed = false;
+    }
+
+    /**
+     * Do not allow objects of this class to be made.
+     */
+    private ANNLinkCache() {
+    }
+
+    /**
+     * Loads the cache from a given file location, dropping expired entries.
+     * Each line is a title, a link and the time it was resolved, separated by tabs.
+     *
+     * @param fileLocation the file location
+     */
+    public static synchronized void setup(String fileLocation) {
+        titleToResolvedLinkMap.clear();
+        changed = false;
+
+        List<String> lineList = DataTool.loadAsList(fileLocation);
+        if(lineList == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for(String line : lineList) {
+            String[] lineArr = line.split(TAB, -1);
+            if(lineArr.length != 3 || !lineArr[2].matches("\\d+")) {
+                continue;
+            }
+
+            ResolvedLink resolvedLink = new ResolvedLink(lineArr[1], Long.parseLong(lineArr[2]));
+            if(!resolvedLink.isExpired(now)) {
+                titleToResolvedLinkMap.put(lineArr[0], resolvedLink);
+            }
+        }
+    }
+
+    /**
+     * Gets the ANN link a title resolved to.
+     *
+     * @param title the title
+     * @return the link, an empty string if the title is known to have no link, or null if the title must be searched for
+     */
+    public static synchronized String get(String title) {
+        String key = getKey(title);
+        ResolvedLink resolvedLink = titleToResolvedLinkMap.get(key);
+        if(resolvedLink == null) {
+            return null;
+        }
+
+        if(resolvedLink.isExpired(System.currentTimeMillis())) {
+            titleToResolvedLinkMap.remove(key);
+            changed = true;
+
+            return null;
+        }
+
+        return resolvedLink.link;
+    }
+
+    /**
+     * Remembers the ANN link a title resolved to.
+     *
+     * @param title the title
+     * @param link  the link, or an empty string if the title has no link
+     */
+    public static synchronized void put(String title, String link) {
+        titleToResolvedLinkMap.put(getKey(title), new ResolvedLink(link, System.currentTimeMillis()));
+        changed = true;
+    }
+
+    /**
+     * Forgets the ANN link a title resolved to.
+     *
+     * @param title the title
+     */
+    public static synchronized void remove(String title) {
+        if(titleToResolvedLinkMap.remove(getKey(title)) != null) {
+            changed = true;
+        }
+    }
+
+    /**
+     * Saves the cache to a given file location.
+     *
+     * @param fileLocation the file location
+     */
+    public static synchronized void save(String fileLocation) {
+        if(!changed) {
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for(Map.Entry<String, ResolvedLink> titleToResolvedLink : titleToResolvedLinkMap.entrySet()) {
+            ResolvedLink resolvedLink = titleToResolvedLink.getValue();
+            sb.append(titleToResolvedLink.getKey()).append(TAB).append(resolvedLink.link).append(TAB).append(resolvedLink.time);
+            sb.append(DataTool.SEPARATOR);
+        }
+
+        if(DataTool.save(fileLocation, sb.toString())) {
+            changed = false;
+        }
+    }
+
+    /**
+     * Gets the key of a title.
+     *
+     * @param title the title
+     * @return the key
+     */
+    private static String getKey(String title) {
+        // tabs and line breaks would break the file format
+        return title.trim().toLowerCase().replaceAll("\\s+", " ");
+    }
+}
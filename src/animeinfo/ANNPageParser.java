@@ -0,0 +1,95 @@
+package animeinfo;
+
+import tool.DataTool;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Extracts the fields of an ANN encyclopedia page in a single pass over its lines.
+ */
+public class ANNPageParser extends PageParser {
+    public static final String HEADING = "heading", ALTERNATIVE_TITLE = "Alternative title", VINTAGE = "Vintage",
+            PLOT_SUMMARY = "Plot Summary", GENRES = "Genres", THEMES = "Themes", EPISODES = "Number of episodes",
+            RUNNING_TIME = "Running time", RATINGS = "Ratings", STAFF = "Staff";
+    public static final PageRuleSet RULES = new PageRuleSet(Arrays.asList(
+            PageRule.between(HEADING, "<h1 id=\"page_header\">", "</h1>"),
+            PageRule.infoBlock(ALTERNATIVE_TITLE),
+            PageRule.infoBlock(VINTAGE),
+            PageRule.infoBlock(PLOT_SUMMARY),
+            PageRule.infoBlock(EPISODES),
+            PageRule.infoBlock(RUNNING_TIME),
+            PageRule.infoBlock(RATINGS),
+            PageRule.tagList(GENRES),
+            PageRule.tagList(THEMES),
+            PageRule.linkList(STAFF, "<div id=\"infotype-staff\"", "</table>")));
+
+    /**
+     * Makes a parser for one page.
+     */
+    public ANNPageParser() {
+        super(RULES);
+    }
+
+    /**
+     * Gets the heading of the page.
+     *
+     * @return the heading
+     */
+    public String getHeading() {
+        return getValue(HEADING);
+    }
+
+    /**
+     * Gets the misc data of the page that appears in a listed ordered.
+     *
+     * @param type the type of misc data
+     *             Can be "Vintage", "Alternative title", "Plot Summary", "Number of episodes", "Running time", "Ratings"
+     * @return the misc data list
+     */
+    public List<String> getMiscList(String type) {
+        return getValueList(type);
+    }
+
+    /**
+     * Gets the tags of the page.
+     *
+     * @param type the type of tag to get
+     *             Can either be "Genres" or "Themes"
+     * @return the tags
+     */
+    public List<String> getTagList(String type) {
+        return getValueList(type);
+    }
+
+    /**
+     * Parses a page that has already been loaded, without using the network.
+     *
+     * @param lines the lines of the page
+     * @return the finished parser of the page
+     */
+    public static ANNPageParser parse(List<String> lines) {
+        ANNPageParser pageParser = new ANNPageParser();
+        for(String line : lines) {
+            pageParser.accept(line);
+        }
+        pageParser.finish();
+
+        return pageParser;
+    }
+
+    /**
+     * Parses a saved page, without using the network.
+     *
+     * @param filename the filename of the saved page
+     * @return the finished parser of the page, otherwise null
+     */
+    public static ANNPageParser parseFile(String filename) {
+        List<String> lineList = DataTool.loadAsList(filename);
+        if(lineList == null) {
+            return null;
+        }
+
+        return parse(lineList);
+    }
+}
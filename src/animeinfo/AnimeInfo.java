@@ -5,10 +5,13 @@ import tool.DataTool;
 import tool.HTMLTool;
 import tool.LinkTool;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * General purpose class to get synopsis and tags from www.animenewsnetwork.com
@@ -16,6 +19,7 @@ import java.util.List;
 public class AnimeInfo {
     public static final String SEPARATOR = System.getProperty("line.separator");
     public static final String PIPE = " | ";
+    public static final long MIN_REFETCH_BACKOFF = TimeUnit.DAYS.toMillis(1), MAX_REFETCH_BACKOFF = TimeUnit.DAYS.toMillis(30);
     public static final Comparator<String> LONGEST_FIRST_COMPARATOR = new Comparator<String>() {
         @Override
         public int compare(String str1, String str2) {
@@ -23,7 +27,9 @@ public class AnimeInfo {
         }
     };
     private String title, titles, category, link, dates, tags, synopsis;
-    private String page;
+    private String absentFields;
+    private long lastChecked;
+    private int checks;
 
     /**
      * Default constructor.
@@ -36,40 +42,71 @@ public class AnimeInfo {
         dates = "";
         tags = "";
         synopsis = "";
+        absentFields = "";
+        lastChecked = 0;
+        checks = 0;
     }
 
     /**
      * Creates a new AnimeInfo object.
      *
      * @param title the title of the anime
+     * @throws UncheckedIOException if the ANN link could not be searched for or the ANN page could not be loaded,
+     *                              so nothing is known about what the page has
      */
     public AnimeInfo(String title) {
-        this.title = title;
+        this(title, resolveANNLink(title));
+    }
+
+    /**
+     * Creates a new AnimeInfo object from its ANN page.
+     *
+     * @param title the title of the anime
+     * @param link  the link of the anime's ANN page
+     * @throws UncheckedIOException if the ANN page could not be loaded
+     */
+    private AnimeInfo(String title, String link) {
+        this(title, link, fetchPage(link));
+    }
 
-        link = getANNLink();
-        page = LinkTool.loadAsString(link);
+    /**
+     * Creates a new AnimeInfo object from an already parsed ANN page, without using the network.
+     *
+     * @param title      the title of the anime
+     * @param link       the link of the anime's ANN page, empty if the title has none
+     * @param pageParser the finished parser of the page, or null if the page could not be loaded
+     * @throws UncheckedIOException if there is a link but its page could not be loaded, a page that was never seen says
+     *                              nothing about which fields are absent
+     */
+    public AnimeInfo(String title, String link, ANNPageParser pageParser) {
+        if(pageParser == null && !link.equals("")) {
+            throw new UncheckedIOException(new IOException("could not load the ANN page: " + link));
+        }
+
+        this.title = title;
+        this.link = link;
 
         List<String> titleList = new ArrayList<>();
 
-        if(page != null) {
-            String heading = getHeading();
+        if(pageParser != null) {
+            String heading = pageParser.getHeading();
 
             // get titles
             String mainTitle = getMainTitle(heading);
             if(!mainTitle.equals("")) { // don't add empty string as a title
                 titleList.add(mainTitle);
             }
-            titleList.addAll(getMisc("Alternative title"));
+            titleList.addAll(pageParser.getMiscList(ANNPageParser.ALTERNATIVE_TITLE));
             titles = DataTool.getListAsString(titleList, PIPE);
 
             category = getType(heading);
 
-            dates = DataTool.getListAsString(getMisc("Vintage"), PIPE);
+            dates = DataTool.getListAsString(pageParser.getMiscList(ANNPageParser.VINTAGE), PIPE);
 
-            tags = getTagsFromPage();
+            tags = getTags(pageParser);
 
             // get synopsis
-            synopsis = DataTool.getListAsString(getMisc("Plot Summary"));
+            synopsis = DataTool.getListAsString(pageParser.getMiscList(ANNPageParser.PLOT_SUMMARY));
         }
         else {
             titles = "";
@@ -78,6 +115,11 @@ public class AnimeInfo {
             tags = "";
             synopsis = "";
         }
+
+        // whatever is still missing now is known to be absent from the page, or there is no page at all
+        absentFields = DataTool.getListAsString(getMissingFieldList(), ", ");
+        lastChecked = System.currentTimeMillis();
+        checks = 1;
     }
 
     /**
@@ -86,88 +128,174 @@ public class AnimeInfo {
      * @return true if it is missing any fields
      */
     public boolean isMissingFields() {
-        return titles.equals("") || category.equals("") || link.equals("") || dates.equals("") ||
-                tags.equals("") || synopsis.equals("");
+        return getTitles().equals("") || getCategory().equals("") || getLink().equals("") || getDates().equals("") ||
+                getTags().equals("") || getSynopsis().equals("");
+    }
+
+    /**
+     * Gets the names of the fields that are missing.
+     *
+     * @return the missing field names
+     */
+    public List<String> getMissingFieldList() {
+        List<String> missingFieldList = new ArrayList<>();
+        if(getTitles().equals("")) {
+            missingFieldList.add(AnimeInfoReader.TITLES);
+        }
+        if(getCategory().equals("")) {
+            missingFieldList.add(AnimeInfoReader.CATEGORY);
+        }
+        if(getLink().equals("")) {
+            missingFieldList.add(AnimeInfoReader.LINK);
+        }
+        if(getDates().equals("")) {
+            missingFieldList.add(AnimeInfoReader.DATES);
+        }
+        if(getTags().equals("")) {
+            missingFieldList.add(AnimeInfoReader.TAGS);
+        }
+        if(getSynopsis().equals("")) {
+            missingFieldList.add(AnimeInfoReader.SYNOPSIS);
+        }
+
+        return missingFieldList;
+    }
+
+    /**
+     * Checks if the AnimeInfo should be fetched again.
+     * Missing fields that were not found at the last check are known to be absent and are only checked again once
+     * the backoff for the number of checks in a row has passed.
+     *
+     * @param now the current time in milliseconds
+     * @return true if the AnimeInfo should be fetched again
+     */
+    public boolean isRefetchDue(long now) {
+        List<String> missingFieldList = getMissingFieldList();
+        if(missingFieldList.isEmpty()) {
+            return false;
+        }
+
+        // a missing field we have never looked for
+        List<String> absentFieldList = DataTool.getStringAsList(getAbsentFields(), ", ");
+        if(!absentFieldList.containsAll(missingFieldList)) {
+            return true;
+        }
+
+        return now - getLastChecked() >= getRefetchBackoff(getChecks());
+    }
+
+    /**
+     * Gets how long to wait before checking for absent fields again.
+     * The backoff doubles with every check in a row that still had absent fields.
+     *
+     * @param checks the number of checks in a row
+     * @return the backoff in milliseconds
+     */
+    public static long getRefetchBackoff(int checks) {
+        int doublings = Math.min(Math.max(checks - 1, 0), 5);
+
+        return Math.min(MIN_REFETCH_BACKOFF << doublings, MAX_REFETCH_BACKOFF);
+    }
+
+    /**
+     * Gets the link of a title's ANN page.
+     * Only links the searches actually answered with are cached, a failed search is tried again next time.
+     *
+     * @param title the title
+     * @return the link, an empty string if the title has none, otherwise null if the search failed
+     */
+    public static String getANNLink(String title) {
+        // see if we already know the link
+        String cachedLink = ANNLinkCache.get(title);
+        if(cachedLink != null) {
+            return cachedLink;
+        }
+
+        String link = searchANNLink(title);
+        if(link != null) {
+            ANNLinkCache.put(title, link);
+        }
+
+        return link;
+    }
+
+    /**
+     * Gets the link of a title's ANN page, failing if the search failed.
+     *
+     * @param title the title
+     * @return the link, otherwise an empty string if the title has none
+     * @throws UncheckedIOException if the search failed
+     */
+    static String resolveANNLink(String title) {
+        String link = getANNLink(title);
+        if(link == null) {
+            throw new UncheckedIOException(new IOException("could not search for the ANN link of: " + title));
+        }
+
+        return link;
     }
 
     /**
-     * Gets the link.
+     * Searches for the link.
      *
-     * @return the link
+     * @param title the title
+     * @return the link, an empty string if the searches found none, otherwise null if no search could be done
      */
-    private String getANNLink() {
+    private static String searchANNLink(String title) {
         String searchTerm = title + " anime news network";
         String siteLinkStart = "http://www.animenewsnetwork.com/encyclopedia/anime.php";
 
         // try google
-        String googleLink = LinkTool.getGoogleSearchResultLink(searchTerm, siteLinkStart);
+        String googleResult = LinkTool.getGoogleSearchResult(searchTerm);
+        String googleLink = LinkTool.findGoogleSearchResultLink(googleResult, siteLinkStart);
         if(googleLink != null) {
             return googleLink;
         }
 
         // try bing
-        String bingLink = LinkTool.getBingSearchResultLink(searchTerm, siteLinkStart);
+        String bingResult = LinkTool.getBingSearchResult(searchTerm);
+        String bingLink = LinkTool.findBingSearchResultLink(bingResult, siteLinkStart);
         if(bingLink != null) {
             return bingLink;
         }
 
+        // only a search that was answered shows there is no link
+        if(googleResult == null && bingResult == null) {
+            return null;
+        }
+
         return "";
     }
 
     /**
-     * Gets the tags.
+     * Downloads and parses an ANN page, parsing it as it is downloaded.
+     *
+     * @param link the link of the page
+     * @return the finished parser of the page, otherwise null
      */
-    private String getTagsFromPage() {
-        List<String> genreList = getTagList("Genres");
-        List<String> themeList = getTagList("Themes");
-
-        genreList.addAll(themeList);
+    public static ANNPageParser fetchPage(String link) {
+        ANNPageParser pageParser = new ANNPageParser();
+        if(!LinkTool.loadLines(link, pageParser)) {
+            return null;
+        }
+        pageParser.finish();
 
-        return DataTool.getListAsString(genreList, ", ");
+        return pageParser;
     }
 
     /**
-     * Gets the tag.
+     * Gets the tags.
      *
-     * @param type the type of tag to get
-     *             Can either be "Genres" or "Themes"
+     * @param pageParser the parser of the page
      * @return the tags
      */
-    private List<String> getTagList(String type) {
-        List<String> tagList = new ArrayList<>();
-
-        int tagsIndex = page.indexOf("<strong>" + type + ":</strong>");
-        if(tagsIndex == -1) {
-            return tagList;
-        }
-
-        String span = "<span>";
-        int tagsStartIndex = page.indexOf(span, tagsIndex);
-        if(tagsStartIndex == -1) {
-            return tagList;
-        }
-
-        int tagsEndIndex = page.indexOf("</div>", tagsStartIndex);
-        if(tagsEndIndex == -1) {
-            return tagList;
-        }
+    private String getTags(ANNPageParser pageParser) {
+        List<String> genreList = pageParser.getTagList(ANNPageParser.GENRES);
+        List<String> themeList = pageParser.getTagList(ANNPageParser.THEMES);
 
-        String tagContent = page.substring(tagsStartIndex + span.length(), tagsEndIndex);
-
-        for(String tag : tagContent.split(SEPARATOR)) {
-            // end of tag
-            int aSpanIndex = tag.lastIndexOf("</a></span>");
-            if(aSpanIndex != -1) {
-                // start of tag
-                String closeTag = ">";
-                int tagIndex = tag.lastIndexOf(closeTag, aSpanIndex);
-                if(tagIndex != -1) {
-                    tagList.add(tag.substring(tagIndex + closeTag.length(), aSpanIndex));
-                }
-            }
-        }
+        genreList.addAll(themeList);
 
-        return tagList;
+        return DataTool.getListAsString(genreList, ", ");
     }
 
     /**
@@ -176,7 +304,7 @@ public class AnimeInfo {
      * @return the date
      */
     public String getDate() {
-        List<String> dateList = DataTool.getStringAsList(dates, PIPE);
+        List<String> dateList = DataTool.getStringAsList(getDates(), PIPE);
 
         // return "?" as the season if we are given an empty dateList
         if(dateList.size() == 0) {
@@ -202,7 +330,7 @@ public class AnimeInfo {
      * @return the synopsis table
      */
     public String getSynopsisTable(String tableClass, String continueReadingTag) {
-        String synopsis = this.synopsis;
+        String synopsis = getSynopsis();
         if(!synopsis.contains(SEPARATOR)) {
             synopsis = synopsis.replace("\n", SEPARATOR); // XML always uses a \n instead of the OS's line separator
         }
@@ -240,9 +368,9 @@ public class AnimeInfo {
      * @return the good titles
      */
     public String getGoodTitles() {
-        String goodTitles = title.replace(": ", " - ");
+        String goodTitles = getTitle().replace(": ", " - ");
 
-        String cleanedTitles = titles.replace(": ", " - ");
+        String cleanedTitles = getTitles().replace(": ", " - ");
         List<String> titleList = DataTool.getStringAsList(cleanedTitles, PIPE);
         Collections.sort(titleList, LONGEST_FIRST_COMPARATOR);
 
@@ -274,7 +402,8 @@ public class AnimeInfo {
     }
 
     public String getSeason() {
-        return new Season(getDate()).SEASON;
+        // dates are nearly all different, so they are parsed to a key instead of going through the Season cache
+        return Season.getSeason(Season.getKey(getDate()));
     }
 
     /**
@@ -315,83 +444,6 @@ public class AnimeInfo {
         return heading.substring(0, spacenAndParenStartIndex);
     }
 
-    /**
-     * Gets the heading of an anime.
-     *
-     * @return the heading
-     */
-    private String getHeading() {
-        String header = "<h1 id=\"page_header\">";
-        int headerStartIndex = page.indexOf(header);
-        if(headerStartIndex == -1) {
-            return "";
-        }
-
-        int headerEndIndex = page.indexOf("</h1>", headerStartIndex + header.length());
-        if(headerEndIndex == -1) {
-            return "";
-        }
-
-        return page.substring(headerStartIndex + header.length(), headerEndIndex);
-    }
-
-    /**
-     * Gets the misc data of an anime that appears in a listed ordered.
-     *
-     * @param type the type of misc data
-     *             Can be "Vintage", "Alternative title", "Plot Summary"
-     * @return the misc data list
-     */
-    private List<String> getMisc(String type) {
-        List<String> miscList = new ArrayList<>();
-        String miscStart = "<strong>" + type + ":</strong>";
-        int miscStartIndex = page.indexOf(miscStart);
-        if(miscStartIndex == -1) {
-            return miscList;
-        }
-
-        int miscEndIndex = page.indexOf("<div id=\"infotype-", miscStartIndex + miscStart.length());
-        if(miscEndIndex == -1) {
-            // try javascript misc end for titles that do not have further info blocks
-            miscEndIndex = page.indexOf("<script type=\"text/javascript\">", miscStartIndex + miscStart.length());
-            if(miscEndIndex == -1) {
-                return miscList;
-            }
-        }
-
-        String miscContent = page.substring(miscStartIndex + miscStart.length(), miscEndIndex);
-
-        String spanStart = "<span>";
-        int spanStartIndex = miscContent.indexOf(spanStart);
-        if(spanStartIndex == -1) { // multiple miscs
-            for(String line : miscContent.split(SEPARATOR)) {
-                // start of misc
-                String divStart = "<div class=\"tab\">";
-                int divStartIndex = line.lastIndexOf(divStart);
-                if(divStartIndex != -1) {
-                    // end of content
-                    String divEnd = "<";
-                    int divEndIndex = line.indexOf(divEnd, divStartIndex + divStart.length());
-                    if(divEndIndex != -1) {
-                        miscList.add(line.substring(divStartIndex + divStart.length(), divEndIndex));
-                    }
-                }
-            }
-
-            return miscList;
-        }
-        else { // single misc
-            int spanEndIndex = miscContent.indexOf("</span>", spanStartIndex + spanStart.length());
-            if(spanEndIndex == -1) {
-                return miscList;
-            }
-
-            miscList.add(miscContent.substring(spanStartIndex + spanStart.length(), spanEndIndex));
-
-            return miscList;
-        }
-    }
-
     public String getTags() {
         return tags;
     }
@@ -448,6 +500,30 @@ public class AnimeInfo {
         this.dates = dates;
     }
 
+    public String getAbsentFields() {
+        return absentFields;
+    }
+
+    public void setAbsentFields(String absentFields) {
+        this.absentFields = absentFields;
+    }
+
+    public long getLastChecked() {
+        return lastChecked;
+    }
+
+    public void setLastChecked(long lastChecked) {
+        this.lastChecked = lastChecked;
+    }
+
+    public int getChecks() {
+        return checks;
+    }
+
+    public void setChecks(int checks) {
+        this.checks = checks;
+    }
+
     /**
      * Gets the hash code.
      *
@@ -457,7 +533,7 @@ public class AnimeInfo {
     public int hashCode() {
         final int prime = 31;
 
-        return prime * synopsis.length();
+        return prime * getSynopsis().length();
     }
 
     /**
@@ -484,10 +560,10 @@ public class AnimeInfo {
         }
 
         AnimeInfo animeInfo = (AnimeInfo) object;
-        return title.equals(animeInfo.title) && titles.equals(animeInfo.titles) &&
-                category.equals(animeInfo.category) && link.equals(animeInfo.link) &&
-                dates.equals(animeInfo.dates) && tags.equals(animeInfo.tags) &&
-                synopsis.equals(animeInfo.synopsis);
+        return getTitle().equals(animeInfo.getTitle()) && getTitles().equals(animeInfo.getTitles()) &&
+                getCategory().equals(animeInfo.getCategory()) && getLink().equals(animeInfo.getLink()) &&
+                getDates().equals(animeInfo.getDates()) && getTags().equals(animeInfo.getTags()) &&
+                getSynopsis().equals(animeInfo.getSynopsis());
     }
 
     /**
@@ -497,7 +573,7 @@ public class AnimeInfo {
      */
     @Override
     public String toString() {
-        return "AnimeInfo [title=" + title + ", link=" + link + ", dates=" + dates + ", tags=" + tags +
-                ", category=" + category + ", titles=" + titles + ", synopsis=" + synopsis + "]";
+        return "AnimeInfo [title=" + getTitle() + ", link=" + getLink() + ", dates=" + getDates() + ", tags=" + getTags() +
+                ", category=" + getCategory() + ", titles=" + getTitles() + ", synopsis=" + getSynopsis() + "]";
     }
 }
\ No newline at end of file
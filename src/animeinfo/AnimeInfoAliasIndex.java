@@ -0,0 +1,163 @@
+package animeinfo;
+
+import tool.DataTool;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Finds the stored AnimeInfo a title means, whatever way the title is written.
+ * Each AnimeInfo is found by the normalized form of its title and of each of its alternative titles,
+ * and by its ANN link, so titles resolving to an already stored ANN page do not have to be looked up again.
+ * If more than one AnimeInfo has the same alias or link, the first one put in keeps it.
+ */
+public class AnimeInfoAliasIndex {
+    private final ConcurrentMap<String, String> aliasToTitleMap;
+    private final ConcurrentMap<String, String> linkToTitleMap;
+
+    /**
+     * Makes an empty index.
+     */
+    public AnimeInfoAliasIndex() {
+        aliasToTitleMap = new ConcurrentHashMap<>();
+        linkToTitleMap = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Adds an AnimeInfo's aliases and link, replacing those of the AnimeInfo it replaces.
+     *
+     * @param animeInfo    the AnimeInfo
+     * @param oldAnimeInfo the AnimeInfo with the same title it replaces, otherwise null
+     */
+    public synchronized void put(AnimeInfo animeInfo, AnimeInfo oldAnimeInfo) {
+        if(oldAnimeInfo != null) {
+            remove(oldAnimeInfo);
+        }
+
+        String title = animeInfo.getTitle();
+        for(String alias : getAliasList(animeInfo)) {
+            aliasToTitleMap.putIfAbsent(alias, title);
+        }
+
+        if(!animeInfo.getLink().equals("")) {
+            linkToTitleMap.putIfAbsent(animeInfo.getLink(), title);
+        }
+    }
+
+    /**
+     * Removes an AnimeInfo's aliases and link.
+     *
+     * @param animeInfo the AnimeInfo
+     */
+    public synchronized void remove(AnimeInfo animeInfo) {
+        String title = animeInfo.getTitle();
+        for(String alias : getAliasList(animeInfo)) {
+            aliasToTitleMap.remove(alias, title);
+        }
+
+        linkToTitleMap.remove(animeInfo.getLink(), title);
+    }
+
+    /**
+     * Adds an alias for an already stored title, like a search title that resolved to the title's ANN page.
+     *
+     * @param alias the alias
+     * @param title the stored title
+     */
+    public void putAlias(String alias, String title) {
+        String normalizedAlias = normalize(alias);
+        if(!normalizedAlias.equals("")) {
+            aliasToTitleMap.putIfAbsent(normalizedAlias, title);
+        }
+    }
+
+    /**
+     * Gets the stored title an alias means.
+     *
+     * @param alias the alias, written any way
+     * @return the stored title, otherwise null
+     */
+    public String getTitle(String alias) {
+        String normalizedAlias = normalize(alias);
+        if(normalizedAlias.equals("")) {
+            return null;
+        }
+
+        return aliasToTitleMap.get(normalizedAlias);
+    }
+
+    /**
+     * Gets the stored title of an ANN link.
+     *
+     * @param link the ANN link
+     * @return the stored title, otherwise null
+     */
+    public String getTitleByLink(String link) {
+        if(link == null || link.equals("")) {
+            return null;
+        }
+
+        return linkToTitleMap.get(link);
+    }
+
+    /**
+     * Gets the normalized aliases of an AnimeInfo.
+     * These are its title and each of its alternative titles, both with and without the language in parentheses.
+     *
+     * @param animeInfo the AnimeInfo
+     * @return the normalized aliases
+     */
+    static List<String> getAliasList(AnimeInfo animeInfo) {
+        List<String> aliasList = new ArrayList<>();
+        aliasList.add(normalize(animeInfo.getTitle()));
+
+        for(String alternativeTitle : DataTool.getStringAsList(animeInfo.getTitles(), AnimeInfo.PIPE)) {
+            aliasList.add(normalize(alternativeTitle));
+
+            // drop the language, like "Cowboy Bebop (Japanese)"
+            String spaceAndParenStart = " (";
+            int spaceAndParenStartIndex = alternativeTitle.lastIndexOf(spaceAndParenStart);
+            if(spaceAndParenStartIndex != -1 && alternativeTitle.endsWith(")")) {
+                aliasList.add(normalize(alternativeTitle.substring(0, spaceAndParenStartIndex)));
+            }
+        }
+
+        aliasList.removeAll(Collections.singleton(""));
+
+        return aliasList;
+    }
+
+    /**
+     * Normalizes a title so ways of writing the same title that only differ in case, width, punctuation or spacing
+     * are the same.
+     *
+     * @param title the title
+     * @return the normalized title, empty if there are no letters or digits
+     */
+    public static String normalize(String title) {
+        String normalized = Normalizer.normalize(title, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+
+        StringBuilder normalizedBuilder = new StringBuilder(normalized.length());
+        boolean space = false;
+        for(int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if(Character.isLetterOrDigit(c)) {
+                if(space && normalizedBuilder.length() > 0) {
+                    normalizedBuilder.append(' ');
+                }
+                normalizedBuilder.append(c);
+                space = false;
+            }
+            else {
+                space = true;
+            }
+        }
+
+        return normalizedBuilder.toString();
+    }
+}
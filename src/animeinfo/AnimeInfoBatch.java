@@ -0,0 +1,154 @@
+package animeinfo;
+
+import tool.DataTool;
+import tool.LinkTool;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Looks up many titles at once using a bounded pool of workers.
+ */
+public class AnimeInfoBatch {
+    public static final int DEFAULT_WORKERS = 16, DEFAULT_CONNECTIONS_PER_HOST = 4;
+
+    /**
+     * Listens to the progress of a batch lookup.
+     */
+    public interface ProgressListener {
+        /**
+         * Called each time a title has been looked up. May be called from any worker thread.
+         *
+         * @param done      the number of titles looked up so far
+         * @param total     the number of titles to look up
+         * @param title     the title that was looked up
+         * @param animeInfo the AnimeInfo for the title, or null if the lookup failed
+         */
+        void progress(int done, int total, String title, AnimeInfo animeInfo);
+    }
+
+    /**
+     * Do not allow objects of this class to be made.
+     */
+    private AnimeInfoBatch() {
+    }
+
+    /**
+     * Looks up every title in a file, one title per line.
+     *
+     * @param filename         the filename of the title file
+     * @param progressListener the progress listener, or null
+     * @return the number of titles looked up, or -1 if the file could not be read
+     */
+    public static int lookup(String filename, ProgressListener progressListener) {
+        return lookup(filename, false, progressListener);
+    }
+
+    /**
+     * Looks up every title in a file, one title per line.
+     * With virtual threads every title gets its own thread and only the connections per host limit bounds the work;
+     * if virtual threads are not supported the default number of workers is used instead.
+     * The LinkTool executor is switched to virtual threads while the batch runs and switched back afterwards.
+     *
+     * @param filename         the filename of the title file
+     * @param virtualThreads   true to look up titles on virtual threads
+     * @param progressListener the progress listener, or null
+     * @return the number of titles looked up, or -1 if the file could not be read
+     */
+    public static int lookup(String filename, boolean virtualThreads, ProgressListener progressListener) {
+        List<String> titleList = DataTool.loadAsList(filename);
+        if(titleList == null) {
+            return -1;
+        }
+
+        // the LinkTool executor is process wide, so the previous one is put back once the batch is done
+        boolean oldVirtualThreads = LinkTool.isVirtualThreads();
+        int workers = DEFAULT_WORKERS;
+        if(virtualThreads && LinkTool.setVirtualThreads(true)) {
+            workers = 0;
+        }
+
+        try {
+            return lookup(titleList, workers, DEFAULT_CONNECTIONS_PER_HOST, progressListener);
+        }
+        finally {
+            LinkTool.setVirtualThreads(oldVirtualThreads);
+        }
+    }
+
+    /**
+     * Looks up a list of titles, blocking until every lookup is done.
+     * Blank and duplicate titles are skipped.
+     * The connections per host limit is applied to every LinkTool connection while the batch runs, not just this
+     * batch's, and the previous limit is put back afterwards.
+     *
+     * @param titles             the titles
+     * @param workers            the maximum number of links resolved and pages fetched at once, or 0 to run every
+     *                           lookup at once on the LinkTool executor
+     * @param connectionsPerHost the maximum number of connections to a single host
+     * @param progressListener   the progress listener, or null
+     * @return the number of titles looked up
+     */
+    public static int lookup(List<String> titles, int workers, int connectionsPerHost, final ProgressListener progressListener) {
+        Set<String> titleSet = new LinkedHashSet<>();
+        for(String title : titles) {
+            title = title.trim();
+            if(!title.equals("")) {
+                titleSet.add(title);
+            }
+        }
+
+        // the limit is process wide, so the previous one is put back once the batch is done
+        int oldConnectionsPerHost = LinkTool.getMaxConnectionsPerHost();
+        LinkTool.setMaxConnectionsPerHost(connectionsPerHost);
+
+        // resolving and fetching both wait on the network, so each gets as many workers
+        AnimeInfoPipeline pipeline = null;
+        if(workers > 0) {
+            pipeline = new AnimeInfoPipeline(workers, workers);
+        }
+
+        final int total = titleSet.size();
+        final AtomicInteger done = new AtomicInteger();
+        List<CompletableFuture<AnimeInfo>> lookupList = new ArrayList<>(total);
+        try {
+            for(final String title : titleSet) {
+                CompletableFuture<AnimeInfo> lookup = pipeline == null ?
+                        AnimeInfoManager.getAnimeInfoAsync(title, LinkTool.getExecutor()) :
+                        AnimeInfoManager.getAnimeInfoAsync(title, pipeline);
+                lookupList.add(lookup.whenComplete(new BiConsumer<AnimeInfo, Throwable>() {
+                    @Override
+                    public void accept(AnimeInfo animeInfo, Throwable throwable) {
+                        int doneCount = done.incrementAndGet();
+                        if(progressListener != null) {
+                            progressListener.progress(doneCount, total, title, animeInfo);
+                        }
+                    }
+                }));
+            }
+
+            // wait for everything, failed lookups have already been reported
+            for(CompletableFuture<AnimeInfo> lookup : lookupList) {
+                try {
+                    lookup.join();
+                }
+                catch(CompletionException e) {
+                }
+            }
+        }
+        finally {
+            if(pipeline != null) {
+                pipeline.shutdown();
+            }
+            LinkTool.setMaxConnectionsPerHost(oldConnectionsPerHost);
+        }
+
+        return total;
+    }
+}
@@ -0,0 +1,166 @@
+package animeinfo;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The compact binary AnimeInfo format, shared by the binary catalog and the journal.
+ * A catalog file is a header (magic, version, entry count, data offset), an index of each entry's title with the
+ * offset and length of its record, and then the records. A record is each field as a length prefixed UTF-8 string
+ * followed by the check fields.
+ */
+final class AnimeInfoBinary {
+    public static final int MAGIC = 0x41494231; // "AIB1"
+    public static final int VERSION = 1;
+    public static final String EXTENSION = ".aib";
+    public static final int HEADER_LENGTH = 4 + 4 + 4 + 8;
+    private static final int MAX_STRING_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * Do not allow objects of this class to be made.
+     */
+    private AnimeInfoBinary() {
+    }
+
+    /**
+     * Checks if a file location is meant for the binary format.
+     *
+     * @param fileLocation the file location
+     * @return true if the location ends with the binary extension
+     */
+    static boolean isBinaryLocation(String fileLocation) {
+        return fileLocation.toLowerCase().endsWith(EXTENSION);
+    }
+
+    /**
+     * Checks if a file is in the binary format.
+     *
+     * @param fileLocation the file location
+     * @return true if the file starts with the binary magic number
+     */
+    static boolean isBinaryFile(String fileLocation) {
+        try(DataInputStream dataInputStream = new DataInputStream(new FileInputStream(fileLocation))) {
+            return dataInputStream.readInt() == MAGIC;
+        }
+        catch(IOException e) {
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes the fields of an AnimeInfo as a record.
+     *
+     * @param dataOutput the output
+     * @param animeInfo  the AnimeInfo
+     * @throws IOException on IOException
+     */
+    static void writeAnimeInfo(DataOutput dataOutput, AnimeInfo animeInfo) throws IOException {
+        writeString(dataOutput, animeInfo.getTitle());
+        writeString(dataOutput, animeInfo.getTitles());
+        writeString(dataOutput, animeInfo.getCategory());
+        writeString(dataOutput, animeInfo.getLink());
+        writeString(dataOutput, animeInfo.getDates());
+        writeString(dataOutput, animeInfo.getTags());
+        writeString(dataOutput, animeInfo.getSynopsis());
+        writeString(dataOutput, animeInfo.getAbsentFields());
+        dataOutput.writeLong(animeInfo.getLastChecked());
+        dataOutput.writeInt(animeInfo.getChecks());
+    }
+
+    /**
+     * Reads an AnimeInfo record.
+     *
+     * @param dataInput the input
+     * @return the AnimeInfo
+     * @throws IOException on IOException
+     */
+    static AnimeInfo readAnimeInfo(DataInput dataInput) throws IOException {
+        AnimeInfo animeInfo = new AnimeInfo();
+        animeInfo.setTitle(readString(dataInput));
+        animeInfo.setTitles(readString(dataInput));
+        animeInfo.setCategory(readString(dataInput));
+        animeInfo.setLink(readString(dataInput));
+        animeInfo.setDates(readString(dataInput));
+        animeInfo.setTags(readString(dataInput));
+        animeInfo.setSynopsis(readString(dataInput));
+        animeInfo.setAbsentFields(readString(dataInput));
+        animeInfo.setLastChecked(dataInput.readLong());
+        animeInfo.setChecks(dataInput.readInt());
+
+        return animeInfo;
+    }
+
+    /**
+     * Gets the length of an AnimeInfo's record without writing it.
+     *
+     * @param animeInfo the AnimeInfo
+     * @return the length in bytes
+     */
+    static int getRecordLength(AnimeInfo animeInfo) {
+        return getStringLength(animeInfo.getTitle()) + getStringLength(animeInfo.getTitles()) +
+                getStringLength(animeInfo.getCategory()) + getStringLength(animeInfo.getLink()) +
+                getStringLength(animeInfo.getDates()) + getStringLength(animeInfo.getTags()) +
+                getStringLength(animeInfo.getSynopsis()) + getStringLength(animeInfo.getAbsentFields()) + 8 + 4;
+    }
+
+    /**
+     * Writes a length prefixed UTF-8 string.
+     *
+     * @param dataOutput the output
+     * @param str        the string
+     * @throws IOException on IOException
+     */
+    static void writeString(DataOutput dataOutput, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        dataOutput.writeInt(bytes.length);
+        dataOutput.write(bytes);
+    }
+
+    /**
+     * Reads a length prefixed UTF-8 string.
+     *
+     * @param dataInput the input
+     * @return the string
+     * @throws IOException on IOException
+     */
+    static String readString(DataInput dataInput) throws IOException {
+        int length = dataInput.readInt();
+        if(length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("bad string length: " + length);
+        }
+
+        byte[] bytes = new byte[length];
+        dataInput.readFully(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the length of a length prefixed UTF-8 string without encoding it.
+     *
+     * @param str the string
+     * @return the length in bytes
+     */
+    static int getStringLength(String str) {
+        int length = 4;
+        for(int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if(c < 0x80) {
+                length += 1;
+            }
+            else if(c < 0x800) {
+                length += 2;
+            }
+            else if(Character.isHighSurrogate(c) && i + 1 < str.length() && Character.isLowSurrogate(str.charAt(i + 1))) {
+                length += 4;
+                i++;
+            }
+            else { // includes lone surrogates, which are encoded as '?'
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+
+        return length;
+    }
+}
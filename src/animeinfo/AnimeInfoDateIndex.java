@@ -0,0 +1,148 @@
+package animeinfo;
+
+import season.Season;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A sorted index of AnimeInfos by the date they first aired, for finding what aired in a season, year or date interval
+ * without going through and parsing the dates of every AnimeInfo.
+ * Dates are kept as Season date keys; a date given only to the month or year gets 0 for the parts it does not have,
+ * so it sorts at the start of its month or year and is found by its year, and by its season if it has a month.
+ */
+public class AnimeInfoDateIndex {
+    private final TreeMap<Integer, List<String>> dateToTitlesMap;
+    private final Map<String, Integer> titleToDateMap;
+
+    /**
+     * Makes an empty index.
+     */
+    public AnimeInfoDateIndex() {
+        dateToTitlesMap = new TreeMap<>();
+        titleToDateMap = new HashMap<>();
+    }
+
+    /**
+     * Adds an AnimeInfo to the index, replacing any AnimeInfo with the same title.
+     * AnimeInfos without a first airing date are left out.
+     *
+     * @param animeInfo the AnimeInfo
+     */
+    public synchronized void put(AnimeInfo animeInfo) {
+        String title = animeInfo.getTitle();
+        remove(title);
+
+        int date = Season.getDateKey(animeInfo.getDate());
+        if(date == Season.NO_KEY) {
+            return;
+        }
+
+        List<String> titleList = dateToTitlesMap.get(date);
+        if(titleList == null) {
+            titleList = new ArrayList<>(1);
+            dateToTitlesMap.put(date, titleList);
+        }
+        titleList.add(title);
+        titleToDateMap.put(title, date);
+    }
+
+    /**
+     * Removes an AnimeInfo from the index.
+     *
+     * @param title the title of the AnimeInfo
+     */
+    public synchronized void remove(String title) {
+        Integer date = titleToDateMap.remove(title);
+        if(date == null) {
+            return;
+        }
+
+        List<String> titleList = dateToTitlesMap.get(date);
+        titleList.remove(title);
+        if(titleList.isEmpty()) {
+            dateToTitlesMap.remove(date);
+        }
+    }
+
+    /**
+     * Gets the number of AnimeInfos in the index.
+     *
+     * @return the number of AnimeInfos
+     */
+    public synchronized int size() {
+        return titleToDateMap.size();
+    }
+
+    /**
+     * Finds the AnimeInfos that first aired in a season.
+     *
+     * @param season the season in TERM YEAR format, like "Spring 1998"
+     * @return the titles, in the order they aired
+     */
+    public List<String> findBySeason(String season) {
+        int key = Season.getKey(season);
+        if(key == Season.NO_KEY) {
+            return new ArrayList<>();
+        }
+
+        int year = Season.getYear(key);
+        int firstMonth = (Season.getMonth(key) - 1) / 3 * 3 + 1;
+
+        return find(Season.getKey(year, firstMonth, 0), Season.getKey(year, firstMonth + 2, Season.DAY_MASK));
+    }
+
+    /**
+     * Finds the AnimeInfos that first aired in a year.
+     *
+     * @param year the year
+     * @return the titles, in the order they aired
+     */
+    public List<String> findByYear(int year) {
+        int from = Season.getKey(year, 0, 0);
+        if(from == Season.NO_KEY) {
+            return new ArrayList<>();
+        }
+
+        return find(from, Season.getKey(year, Season.MONTH_MASK, Season.DAY_MASK));
+    }
+
+    /**
+     * Finds the AnimeInfos that first aired in a date interval.
+     *
+     * @param fromDate the first date in YYYY-MM-DD format
+     * @param toDate   the last date in YYYY-MM-DD format
+     * @return the titles, in the order they aired
+     */
+    public List<String> findByDates(String fromDate, String toDate) {
+        int from = Season.getDateKey(fromDate), to = Season.getDateKey(toDate);
+        if(from == Season.NO_KEY || to == Season.NO_KEY) {
+            return new ArrayList<>();
+        }
+
+        return find(from, to);
+    }
+
+    /**
+     * Finds the AnimeInfos with a date key in an interval.
+     *
+     * @param from the first date key
+     * @param to   the last date key
+     * @return the titles, in the order they aired
+     */
+    private synchronized List<String> find(int from, int to) {
+        List<String> titleList = new ArrayList<>();
+        if(from > to) {
+            return titleList;
+        }
+
+        for(List<String> dateTitleList : dateToTitlesMap.subMap(from, true, to, true).values()) {
+            titleList.addAll(dateTitleList);
+        }
+
+        return titleList;
+    }
+}
@@ -0,0 +1,352 @@
+package animeinfo;
+
+import tool.DataTool;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A facet index over the tags and categories of AnimeInfos.
+ * Each tag and category is interned to an id with a bitset of the docs that have it, so queries combining tags
+ * with AND, OR and NOT, and the number of docs with each tag, are worked out a word of 64 docs at a time
+ * instead of by splitting the tags of every AnimeInfo.
+ */
+public class AnimeInfoFacetIndex {
+    public static final String TAG_SEPARATOR = ", ";
+    private static final int MIN_CAPACITY = 64;
+    private final Facets tagFacets, categoryFacets;
+    private final Map<String, Integer> titleToDocMap;
+    private final List<String> docTitleList;
+    private final List<int[]> docTagIdsList;
+    private final List<Integer> docCategoryIdList;
+    private final List<Integer> freeDocList;
+    private long[] liveBits;
+
+    /**
+     * Makes an empty index.
+     */
+    public AnimeInfoFacetIndex() {
+        tagFacets = new Facets();
+        categoryFacets = new Facets();
+        titleToDocMap = new HashMap<>();
+        docTitleList = new ArrayList<>();
+        docTagIdsList = new ArrayList<>();
+        docCategoryIdList = new ArrayList<>();
+        freeDocList = new ArrayList<>();
+        liveBits = new long[MIN_CAPACITY / 64];
+    }
+
+    /**
+     * Adds an AnimeInfo to the index, replacing any AnimeInfo with the same title.
+     *
+     * @param animeInfo the AnimeInfo
+     */
+    public synchronized void put(AnimeInfo animeInfo) {
+        String title = animeInfo.getTitle();
+        remove(title);
+
+        // reuse the doc of a removed AnimeInfo if there is one
+        int doc;
+        if(freeDocList.isEmpty()) {
+            doc = docTitleList.size();
+            docTitleList.add(null);
+            docTagIdsList.add(null);
+            docCategoryIdList.add(null);
+            ensureCapacity(doc + 1);
+        }
+        else {
+            doc = freeDocList.remove(freeDocList.size() - 1);
+        }
+
+        LinkedHashSet<String> tagSet = new LinkedHashSet<>();
+        for(String tag : DataTool.getStringAsList(animeInfo.getTags(), TAG_SEPARATOR)) {
+            if(!tag.trim().equals("")) {
+                tagSet.add(tag.trim());
+            }
+        }
+        int[] tagIds = new int[tagSet.size()];
+        int i = 0;
+        for(String tag : tagSet) {
+            tagIds[i] = tagFacets.add(tag, doc, liveBits.length);
+            i++;
+        }
+
+        Integer categoryId = null;
+        if(!animeInfo.getCategory().equals("")) {
+            categoryId = categoryFacets.add(animeInfo.getCategory(), doc, liveBits.length);
+        }
+
+        docTitleList.set(doc, title);
+        docTagIdsList.set(doc, tagIds);
+        docCategoryIdList.set(doc, categoryId);
+        liveBits[doc >>> 6] |= 1L << doc;
+        titleToDocMap.put(title, doc);
+    }
+
+    /**
+     * Removes an AnimeInfo from the index.
+     *
+     * @param title the title of the AnimeInfo
+     */
+    public synchronized void remove(String title) {
+        Integer doc = titleToDocMap.remove(title);
+        if(doc == null) {
+            return;
+        }
+
+        for(int tagId : docTagIdsList.get(doc)) {
+            tagFacets.remove(tagId, doc);
+        }
+        Integer categoryId = docCategoryIdList.get(doc);
+        if(categoryId != null) {
+            categoryFacets.remove(categoryId, doc);
+        }
+
+        liveBits[doc >>> 6] &= ~(1L << doc);
+        docTitleList.set(doc, null);
+        docTagIdsList.set(doc, null);
+        docCategoryIdList.set(doc, null);
+        freeDocList.add(doc);
+    }
+
+    /**
+     * Gets the number of AnimeInfos in the index.
+     *
+     * @return the number of AnimeInfos
+     */
+    public synchronized int size() {
+        return titleToDocMap.size();
+    }
+
+    /**
+     * Finds the AnimeInfos matching a query.
+     *
+     * @param allTags    the tags an AnimeInfo must all have, empty for no restriction
+     * @param anyTags    the tags an AnimeInfo must have at least one of, empty for no restriction
+     * @param noneTags   the tags an AnimeInfo must not have
+     * @param categories the categories an AnimeInfo must be one of, empty for any category
+     * @param limit      the most titles to return
+     * @return the titles of the matching AnimeInfos, in no particular order
+     */
+    public synchronized List<String> find(Collection<String> allTags, Collection<String> anyTags,
+                                          Collection<String> noneTags, Collection<String> categories, int limit) {
+        long[] bits = select(allTags, anyTags, noneTags, categories);
+
+        List<String> titleList = new ArrayList<>();
+        for(int word = 0; word < bits.length && titleList.size() < limit; word++) {
+            long wordBits = bits[word];
+            while(wordBits != 0 && titleList.size() < limit) {
+                int doc = (word << 6) + Long.numberOfTrailingZeros(wordBits);
+                titleList.add(docTitleList.get(doc));
+                wordBits &= wordBits - 1;
+            }
+        }
+
+        return titleList;
+    }
+
+    /**
+     * Counts the AnimeInfos matching a query.
+     *
+     * @param allTags    the tags an AnimeInfo must all have, empty for no restriction
+     * @param anyTags    the tags an AnimeInfo must have at least one of, empty for no restriction
+     * @param noneTags   the tags an AnimeInfo must not have
+     * @param categories the categories an AnimeInfo must be one of, empty for any category
+     * @return the number of matching AnimeInfos
+     */
+    public synchronized int count(Collection<String> allTags, Collection<String> anyTags, Collection<String> noneTags,
+                                  Collection<String> categories) {
+        return getCardinality(select(allTags, anyTags, noneTags, categories));
+    }
+
+    /**
+     * Counts the AnimeInfos with each tag among those matching a query, to show how a query can be narrowed down.
+     *
+     * @param allTags    the tags an AnimeInfo must all have, empty for no restriction
+     * @param anyTags    the tags an AnimeInfo must have at least one of, empty for no restriction
+     * @param noneTags   the tags an AnimeInfo must not have
+     * @param categories the categories an AnimeInfo must be one of, empty for any category
+     * @return the number of matching AnimeInfos with each tag that any of them have, by tag
+     */
+    public synchronized Map<String, Integer> getTagCounts(Collection<String> allTags, Collection<String> anyTags,
+                                                          Collection<String> noneTags, Collection<String> categories) {
+        return tagFacets.getCounts(select(allTags, anyTags, noneTags, categories));
+    }
+
+    /**
+     * Counts the AnimeInfos in each category among those matching a query.
+     *
+     * @param allTags    the tags an AnimeInfo must all have, empty for no restriction
+     * @param anyTags    the tags an AnimeInfo must have at least one of, empty for no restriction
+     * @param noneTags   the tags an AnimeInfo must not have
+     * @param categories the categories an AnimeInfo must be one of, empty for any category
+     * @return the number of matching AnimeInfos in each category that any of them are in, by category
+     */
+    public synchronized Map<String, Integer> getCategoryCounts(Collection<String> allTags, Collection<String> anyTags,
+                                                               Collection<String> noneTags,
+                                                               Collection<String> categories) {
+        return categoryFacets.getCounts(select(allTags, anyTags, noneTags, categories));
+    }
+
+    /**
+     * Works out the docs matching a query.
+     *
+     * @param allTags    the tags a doc must all have
+     * @param anyTags    the tags a doc must have at least one of
+     * @param noneTags   the tags a doc must not have
+     * @param categories the categories a doc must be one of
+     * @return the bitset of the matching docs
+     */
+    private long[] select(Collection<String> allTags, Collection<String> anyTags, Collection<String> noneTags,
+                          Collection<String> categories) {
+        long[] bits = liveBits.clone();
+
+        for(String tag : allTags) {
+            long[] tagBits = tagFacets.getBits(tag);
+            if(tagBits == null) {
+                return new long[0];
+            }
+            and(bits, tagBits);
+        }
+
+        if(!anyTags.isEmpty()) {
+            and(bits, union(tagFacets, anyTags));
+        }
+
+        for(String tag : noneTags) {
+            long[] tagBits = tagFacets.getBits(tag);
+            if(tagBits != null) {
+                for(int word = 0; word < bits.length; word++) {
+                    bits[word] &= ~tagBits[word];
+                }
+            }
+        }
+
+        if(!categories.isEmpty()) {
+            and(bits, union(categoryFacets, categories));
+        }
+
+        return bits;
+    }
+
+    private long[] union(Facets facets, Collection<String> values) {
+        long[] bits = new long[liveBits.length];
+        for(String value : values) {
+            long[] valueBits = facets.getBits(value);
+            if(valueBits != null) {
+                for(int word = 0; word < bits.length; word++) {
+                    bits[word] |= valueBits[word];
+                }
+            }
+        }
+
+        return bits;
+    }
+
+    private static void and(long[] bits, long[] otherBits) {
+        for(int word = 0; word < bits.length; word++) {
+            bits[word] &= otherBits[word];
+        }
+    }
+
+    private static int getCardinality(long[] bits) {
+        int cardinality = 0;
+        for(long word : bits) {
+            cardinality += Long.bitCount(word);
+        }
+
+        return cardinality;
+    }
+
+    /**
+     * Grows every bitset so it can hold a doc count, doubling so growing is rare.
+     *
+     * @param docCount the doc count
+     */
+    private void ensureCapacity(int docCount) {
+        int words = (docCount + 63) >>> 6;
+        if(words <= liveBits.length) {
+            return;
+        }
+
+        int newWords = Math.max(words, liveBits.length * 2);
+        long[] newLiveBits = new long[newWords];
+        System.arraycopy(liveBits, 0, newLiveBits, 0, liveBits.length);
+        liveBits = newLiveBits;
+
+        tagFacets.ensureCapacity(newWords);
+        categoryFacets.ensureCapacity(newWords);
+    }
+
+    /**
+     * The interned values of one kind of facet, each with the bitset of the docs that have it.
+     * Ids of values no doc has any more are kept, there are only ever a few hundred tags and categories.
+     */
+    private static class Facets {
+        private final Map<String, Integer> valueToIdMap = new HashMap<>();
+        private final List<String> valueList = new ArrayList<>();
+        private final List<long[]> bitsList = new ArrayList<>();
+        private final List<Integer> countList = new ArrayList<>();
+
+        private int add(String value, int doc, int words) {
+            Integer id = valueToIdMap.get(value);
+            if(id == null) {
+                id = valueList.size();
+                valueToIdMap.put(value, id);
+                valueList.add(value);
+                bitsList.add(new long[words]);
+                countList.add(0);
+            }
+
+            bitsList.get(id)[doc >>> 6] |= 1L << doc;
+            countList.set(id, countList.get(id) + 1);
+
+            return id;
+        }
+
+        private void remove(int id, int doc) {
+            bitsList.get(id)[doc >>> 6] &= ~(1L << doc);
+            countList.set(id, countList.get(id) - 1);
+        }
+
+        private long[] getBits(String value) {
+            Integer id = valueToIdMap.get(value);
+
+            return id == null ? null : bitsList.get(id);
+        }
+
+        private Map<String, Integer> getCounts(long[] bits) {
+            Map<String, Integer> valueToCountMap = new TreeMap<>();
+            for(int id = 0; id < valueList.size(); id++) {
+                if(countList.get(id) == 0) {
+                    continue;
+                }
+
+                long[] valueBits = bitsList.get(id);
+                int count = 0;
+                for(int word = 0; word < bits.length; word++) {
+                    count += Long.bitCount(bits[word] & valueBits[word]);
+                }
+                if(count > 0) {
+                    valueToCountMap.put(valueList.get(id), count);
+                }
+            }
+
+            return valueToCountMap;
+        }
+
+        private void ensureCapacity(int words) {
+            for(int id = 0; id < bitsList.size(); id++) {
+                long[] bits = bitsList.get(id);
+                long[] newBits = new long[words];
+                System.arraycopy(bits, 0, newBits, 0, bits.length);
+                bitsList.set(id, newBits);
+            }
+        }
+    }
+}
@@ -1,40 +1,131 @@
 package animeinfo;
 
 import gui.ColorManager;
+import tool.LinkTool;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
 public class AnimeInfoFrame {
+    public static final String ANN_LINKS_LOCATION = "ANNLinks.txt";
+
     public static void main(String[] args) {
-        // if any args are given, use the command line version
-        if(args.length != 0) {
+        LinkTool.setCacheDirectory("LinkCache");
+
+        // convert an AnimeInfo file between XML and the binary format, one AnimeInfo at a time
+        if(args.length == 3 && args[0].equals("-convert")) {
+            System.out.println("Converting data from: " + args[1]);
+            // the writer only replaces the file once the whole source has been read
+            boolean saved;
+            try(Stream<AnimeInfo> animeInfoStream = AnimeInfoReader.stream(args[1])) {
+                saved = AnimeInfoWriter.write(args[2], animeInfoStream.iterator());
+            }
+            catch(UncheckedIOException e) {
+                System.out.println("Could not read data from: " + args[1]);
+
+                return;
+            }
+
+            if(saved) {
+                System.out.println("Saved data to: " + args[2]);
+            }
+            else {
+                System.out.println("Could not save data to: " + args[2]);
+            }
+        }
+        // look up every title in a file
+        else if((args.length == 2 || args.length == 3) && args[0].equals("-batch")) {
+            boolean virtualThreads = args.length == 3 && args[2].equals("-virtual");
+
+            String fileLocation = "AnimeInfo.xml";
+            System.out.println("Loading data from: " + fileLocation);
+            AnimeInfoManager.setup(fileLocation);
+            ANNLinkCache.setup(ANN_LINKS_LOCATION);
+            System.out.println("Loaded data from: " + fileLocation);
+            System.out.println();
+
+            System.out.println("Looking up titles from: " + args[1]);
+            int total = AnimeInfoBatch.lookup(args[1], virtualThreads, new AnimeInfoBatch.ProgressListener() {
+                @Override
+                public void progress(int done, int total, String title, AnimeInfo animeInfo) {
+                    String status = animeInfo == null ? "failed" : animeInfo.isMissingFields() ? "incomplete" : "found";
+                    System.out.println("[" + done + "/" + total + "] " + status + ": " + title);
+                }
+            });
+            if(total == -1) {
+                System.out.println("Could not read titles from: " + args[1]);
+            }
+
+            System.out.println();
+            System.out.println("Saving data to: " + fileLocation);
+            AnimeInfoManager.save(fileLocation);
+            ANNLinkCache.save(ANN_LINKS_LOCATION);
+            System.out.println("Saved data to: " + fileLocation);
+        }
+        // if any other args are given, use the command line version
+        else if(args.length != 0) {
             String fileLocation = "AnimeInfo.xml";
             System.out.println("Loading data from: " + fileLocation);
             AnimeInfoManager.setup(fileLocation);
+            ANNLinkCache.setup(ANN_LINKS_LOCATION);
             System.out.println("Loaded data from: " + fileLocation);
             System.out.println();
 
             Scanner scanner = new Scanner(System.in);
             while(true) {
-                System.out.print("Enter an anime title (or nothing to quit): ");
+                System.out.print("Enter an anime title, ?words to search stored titles (or nothing to quit): ");
                 String searchTitle = scanner.nextLine();
                 if(searchTitle.equals("")) {
                     System.out.println("Quitting program");
                     break;
                 }
 
+                // search the stored AnimeInfos, without using the network
+                if(searchTitle.startsWith("?")) {
+                    for(AnimeInfo animeInfo : AnimeInfoManager.search(searchTitle.substring(1), 10)) {
+                        System.out.println(animeInfo.getTitle() + " (" + animeInfo.getSeason() + ")");
+                    }
+
+                    continue;
+                }
+
+                // offer stored titles written almost the same before going to the network
+                if(!AnimeInfoManager.isStored(searchTitle)) {
+                    List<String> similarTitleList = AnimeInfoManager.findSimilarTitles(searchTitle, 5);
+                    if(!similarTitleList.isEmpty()) {
+                        System.out.println("Stored titles like this:");
+                        for(int i = 0; i < similarTitleList.size(); i++) {
+                            System.out.println("    " + (i + 1) + ": " + similarTitleList.get(i));
+                        }
+                        System.out.print("Enter a number to use a stored title (or nothing to search online): ");
+                        String choice = scanner.nextLine();
+                        if(choice.matches("\\d") && Integer.parseInt(choice) >= 1 &&
+                                Integer.parseInt(choice) <= similarTitleList.size()) {
+                            searchTitle = similarTitleList.get(Integer.parseInt(choice) - 1);
+                        }
+                    }
+                }
+
                 System.out.println("searching for: " + searchTitle);
-                AnimeInfo animeInfo = AnimeInfoManager.getAnimeInfo(searchTitle);
-                System.out.println(animeInfo);
+                try {
+                    System.out.println(AnimeInfoManager.getAnimeInfo(searchTitle));
+                }
+                catch(CompletionException e) { // nothing stored and nothing fetched
+                    System.out.println("could not get data for: " + searchTitle);
+                }
             }
 
             System.out.println();
             System.out.println("Saving data to: " + fileLocation);
             AnimeInfoManager.save(fileLocation);
+            ANNLinkCache.save(ANN_LINKS_LOCATION);
             System.out.println("Saved data to: " + fileLocation);
         }
         else {
@@ -56,6 +147,7 @@ public class AnimeInfoFrame {
 
         final String fileLocation = "AnimeInfo.xml";
         AnimeInfoManager.setup(fileLocation);
+        ANNLinkCache.setup(ANN_LINKS_LOCATION);
 
         final JFrame frame = new JFrame("AnimeInfo 2016-01-05");
         frame.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
@@ -78,6 +170,7 @@ public class AnimeInfoFrame {
 
             public void windowClosing(WindowEvent e) {
                 AnimeInfoManager.save(fileLocation);
+                ANNLinkCache.save(ANN_LINKS_LOCATION);
             }
         });
     }
@@ -0,0 +1,282 @@
+package animeinfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds stored titles that are written almost like a title, to catch typos before going to the network.
+ * Every alias of every AnimeInfo is split into trigrams, and only aliases sharing enough trigrams with the title
+ * are compared to it with an edit distance that gives up once the distance is too large.
+ */
+public class AnimeInfoFuzzyIndex {
+    public static final int MAX_DISTANCE = 3;
+    private static final char PAD = '\u0000';
+    private final Map<String, Postings> trigramToPostingsMap;
+    private final List<String> aliasList;
+    private final List<String> aliasTitleList;
+    private final Map<String, List<Integer>> titleToAliasesMap;
+    private final List<Integer> freeAliasList;
+    private int[] sharedCounts;
+
+    /**
+     * Makes an empty index.
+     */
+    public AnimeInfoFuzzyIndex() {
+        trigramToPostingsMap = new HashMap<>();
+        aliasList = new ArrayList<>();
+        aliasTitleList = new ArrayList<>();
+        titleToAliasesMap = new HashMap<>();
+        freeAliasList = new ArrayList<>();
+        sharedCounts = new int[0];
+    }
+
+    /**
+     * Adds an AnimeInfo's aliases, replacing those of any AnimeInfo with the same title.
+     *
+     * @param animeInfo the AnimeInfo
+     */
+    public synchronized void put(AnimeInfo animeInfo) {
+        String title = animeInfo.getTitle();
+        remove(title);
+
+        List<Integer> aliasIdList = new ArrayList<>();
+        for(String alias : new HashSet<>(AnimeInfoAliasIndex.getAliasList(animeInfo))) {
+            // reuse the id of a removed alias if there is one
+            int aliasId;
+            if(freeAliasList.isEmpty()) {
+                aliasId = aliasList.size();
+                aliasList.add(alias);
+                aliasTitleList.add(title);
+            }
+            else {
+                aliasId = freeAliasList.remove(freeAliasList.size() - 1);
+                aliasList.set(aliasId, alias);
+                aliasTitleList.set(aliasId, title);
+            }
+            aliasIdList.add(aliasId);
+
+            for(String trigram : getTrigramSet(alias)) {
+                Postings postings = trigramToPostingsMap.get(trigram);
+                if(postings == null) {
+                    postings = new Postings();
+                    trigramToPostingsMap.put(trigram, postings);
+                }
+                postings.add(aliasId);
+            }
+        }
+        titleToAliasesMap.put(title, aliasIdList);
+    }
+
+    /**
+     * Removes an AnimeInfo's aliases.
+     *
+     * @param title the title of the AnimeInfo
+     */
+    public synchronized void remove(String title) {
+        List<Integer> aliasIdList = titleToAliasesMap.remove(title);
+        if(aliasIdList == null) {
+            return;
+        }
+
+        for(int aliasId : aliasIdList) {
+            for(String trigram : getTrigramSet(aliasList.get(aliasId))) {
+                Postings postings = trigramToPostingsMap.get(trigram);
+                postings.remove(aliasId);
+                if(postings.size == 0) {
+                    trigramToPostingsMap.remove(trigram);
+                }
+            }
+
+            aliasList.set(aliasId, null);
+            aliasTitleList.set(aliasId, null);
+            freeAliasList.add(aliasId);
+        }
+    }
+
+    /**
+     * Finds the stored titles that have an alias written almost like a title.
+     *
+     * @param title the title, written any way
+     * @param limit the most titles to return
+     * @return the stored titles, closest first
+     */
+    public synchronized List<String> find(String title, int limit) {
+        final String query = AnimeInfoAliasIndex.normalize(title);
+        if(query.equals("") || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // an edit changes at most 3 trigrams, so closer aliases share at least this many trigrams with the query
+        int maxDistance = getMaxDistance(query);
+        Set<String> queryTrigramSet = getTrigramSet(query);
+        int minSharedTrigrams = Math.max(1, queryTrigramSet.size() - 3 * maxDistance);
+
+        // count the shared trigrams, noting each alias once as it reaches the minimum
+        if(sharedCounts.length < aliasList.size()) {
+            sharedCounts = new int[Math.max(aliasList.size(), sharedCounts.length * 2)];
+        }
+        List<Postings> queryPostingsList = new ArrayList<>();
+        List<Integer> candidateList = new ArrayList<>();
+        for(String trigram : queryTrigramSet) {
+            Postings postings = trigramToPostingsMap.get(trigram);
+            if(postings == null) {
+                continue;
+            }
+
+            queryPostingsList.add(postings);
+            for(int i = 0; i < postings.size; i++) {
+                if(++sharedCounts[postings.ids[i]] == minSharedTrigrams) {
+                    candidateList.add(postings.ids[i]);
+                }
+            }
+        }
+
+        // clear the counts for the next query, only the aliases in these postings were counted
+        for(Postings postings : queryPostingsList) {
+            for(int i = 0; i < postings.size; i++) {
+                sharedCounts[postings.ids[i]] = 0;
+            }
+        }
+
+        // each title counts once, with its closest alias
+        final Map<String, Integer> titleToDistanceMap = new HashMap<>();
+        for(int aliasId : candidateList) {
+            String aliasTitle = aliasTitleList.get(aliasId);
+            int distance = getDistance(query, aliasList.get(aliasId), maxDistance);
+            Integer oldDistance = titleToDistanceMap.get(aliasTitle);
+            if(distance <= maxDistance && (oldDistance == null || distance < oldDistance)) {
+                titleToDistanceMap.put(aliasTitle, distance);
+            }
+        }
+
+        List<String> titleList = new ArrayList<>(titleToDistanceMap.keySet());
+        Collections.sort(titleList, new Comparator<String>() {
+            @Override
+            public int compare(String title1, String title2) {
+                int distanceCompare = titleToDistanceMap.get(title1) - titleToDistanceMap.get(title2);
+                if(distanceCompare != 0) {
+                    return distanceCompare;
+                }
+
+                return title1.compareTo(title2);
+            }
+        });
+
+        return titleList.size() > limit ? new ArrayList<>(titleList.subList(0, limit)) : titleList;
+    }
+
+    /**
+     * Gets how many edits a title can be away from an alias to still match it.
+     * Short titles allow fewer edits, or nearly every short alias would match.
+     *
+     * @param query the normalized title
+     * @return the most edits
+     */
+    public static int getMaxDistance(String query) {
+        return Math.max(1, Math.min(MAX_DISTANCE, query.length() / 4));
+    }
+
+    /**
+     * Gets the trigrams of a normalized title, padded so the start and end of it count too.
+     *
+     * @param str the normalized title
+     * @return the trigrams
+     */
+    private static Set<String> getTrigramSet(String str) {
+        String padded = "" + PAD + PAD + str + PAD;
+
+        Set<String> trigramSet = new HashSet<>();
+        for(int i = 0; i + 3 <= padded.length(); i++) {
+            trigramSet.add(padded.substring(i, i + 3));
+        }
+
+        return trigramSet;
+    }
+
+    /**
+     * Gets the Levenshtein distance between two strings, giving up once it is over a maximum.
+     * Only the band of cells within the maximum of the diagonal is worked out.
+     *
+     * @param str1        the first string
+     * @param str2        the second string
+     * @param maxDistance the maximum distance
+     * @return the distance, otherwise maxDistance + 1 if it is larger
+     */
+    public static int getDistance(String str1, String str2, int maxDistance) {
+        int length1 = str1.length(), length2 = str2.length();
+        if(Math.abs(length1 - length2) > maxDistance) {
+            return maxDistance + 1;
+        }
+
+        int tooFar = maxDistance + 1;
+        int[] previousRow = new int[length2 + 1];
+        int[] row = new int[length2 + 1];
+        for(int j = 0; j <= length2; j++) {
+            previousRow[j] = j <= maxDistance ? j : tooFar;
+        }
+
+        for(int i = 1; i <= length1; i++) {
+            int from = Math.max(1, i - maxDistance), to = Math.min(length2, i + maxDistance);
+            row[0] = i <= maxDistance ? i : tooFar;
+            if(from > 1) {
+                row[from - 1] = tooFar;
+            }
+
+            int rowMin = row[0];
+            for(int j = from; j <= to; j++) {
+                int cost = str1.charAt(i - 1) == str2.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(row[j - 1] + 1, previousRow[j] + 1), previousRow[j - 1] + cost);
+                row[j] = Math.min(distance, tooFar);
+                rowMin = Math.min(rowMin, row[j]);
+            }
+            if(to < length2) {
+                row[to + 1] = tooFar;
+            }
+
+            // every later row is at least as far
+            if(rowMin > maxDistance) {
+                return tooFar;
+            }
+
+            int[] temp = previousRow;
+            previousRow = row;
+            row = temp;
+        }
+
+        return previousRow[length2];
+    }
+
+    /**
+     * The aliases a trigram is in.
+     */
+    private static class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        private void add(int id) {
+            if(size == ids.length) {
+                int[] newIds = new int[size * 2];
+                System.arraycopy(ids, 0, newIds, 0, size);
+                ids = newIds;
+            }
+
+            ids[size++] = id;
+        }
+
+        private void remove(int id) {
+            for(int i = 0; i < size; i++) {
+                if(ids[i] == id) {
+                    ids[i] = ids[--size];
+
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package animeinfo;
+
+import java.io.*;
+import java.util.Collection;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of AnimeInfos added since the last snapshot of an AnimeInfo file.
+ * Each record holds one whole AnimeInfo, so replaying the journal over the snapshot in order restores the latest entries.
+ * Records carry a CRC32, a record torn by a crash is dropped on replay.
+ */
+class AnimeInfoJournal {
+    public static final String JOURNAL_EXTENSION = ".journal";
+    private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+    private final File journalFile;
+    private int recordCount;
+
+    /**
+     * Makes the journal of an AnimeInfo file.
+     *
+     * @param fileLocation the location of the AnimeInfo file
+     */
+    AnimeInfoJournal(String fileLocation) {
+        journalFile = new File(fileLocation + JOURNAL_EXTENSION);
+        recordCount = 0;
+    }
+
+    /**
+     * Replays the journal into a map, dropping any torn record at its end.
+     *
+     * @param titleToAnimeInfoMap the map loaded from the snapshot
+     * @return the number of records replayed
+     */
+    synchronized int replay(Map<String, AnimeInfo> titleToAnimeInfoMap) {
+        recordCount = replay(journalFile, titleToAnimeInfoMap);
+
+        return recordCount;
+    }
+
+    /**
+     * Appends AnimeInfos to the journal and forces them to disk.
+     *
+     * @param animeInfos the AnimeInfos
+     * @return true on success
+     */
+    synchronized boolean append(Collection<AnimeInfo> animeInfos) {
+        if(animeInfos.isEmpty()) {
+            return true;
+        }
+
+        try(FileOutputStream fileOutputStream = new FileOutputStream(journalFile, true)) {
+            DataOutputStream dataOutputStream = new DataOutputStream(new BufferedOutputStream(fileOutputStream));
+            for(AnimeInfo animeInfo : animeInfos) {
+                byte[] record = toRecord(animeInfo);
+
+                CRC32 crc32 = new CRC32();
+                crc32.update(record);
+
+                dataOutputStream.writeInt(record.length);
+                dataOutputStream.writeInt((int) crc32.getValue());
+                dataOutputStream.write(record);
+            }
+            dataOutputStream.flush();
+            fileOutputStream.getChannel().force(false);
+
+            recordCount += animeInfos.size();
+
+            return true;
+        }
+        catch(IOException e) {
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the number of records in the journal since it was last cleared.
+     *
+     * @return the number of records
+     */
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Deletes the journal once a snapshot containing all of its records has been written.
+     */
+    synchronized void clear() {
+        journalFile.delete();
+        recordCount = 0;
+    }
+
+    /**
+     * Replays a journal file.
+     *
+     * @param file                the journal file
+     * @param titleToAnimeInfoMap the map to replay into
+     * @return the number of records replayed
+     */
+    private static int replay(File file, Map<String, AnimeInfo> titleToAnimeInfoMap) {
+        if(!file.isFile()) {
+            return 0;
+        }
+
+        int count = 0;
+        long goodLength = 0;
+        try(DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while(true) {
+                int length = dataInputStream.readInt();
+                int crc = dataInputStream.readInt();
+                if(length < 0 || length > MAX_RECORD_LENGTH) {
+                    break;
+                }
+
+                byte[] record = new byte[length];
+                dataInputStream.readFully(record);
+
+                CRC32 crc32 = new CRC32();
+                crc32.update(record);
+                if((int) crc32.getValue() != crc) {
+                    break;
+                }
+
+                AnimeInfo animeInfo = fromRecord(record);
+                titleToAnimeInfoMap.put(animeInfo.getTitle(), animeInfo);
+                count++;
+                goodLength += 8 + length;
+            }
+        }
+        catch(EOFException e) { // end of the journal, or a torn record
+        }
+        catch(IOException e) {
+        }
+
+        // cut off a torn record so new records are not appended after it
+        if(goodLength < file.length()) {
+            try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+                randomAccessFile.setLength(goodLength);
+            }
+            catch(IOException e) {
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Writes an AnimeInfo to a record.
+     *
+     * @param animeInfo the AnimeInfo
+     * @return the record
+     * @throws IOException on IOException
+     */
+    static byte[] toRecord(AnimeInfo animeInfo) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+        AnimeInfoBinary.writeAnimeInfo(dataOutputStream, animeInfo);
+        dataOutputStream.flush();
+
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    /**
+     * Reads an AnimeInfo from a record.
+     *
+     * @param record the record
+     * @return the AnimeInfo
+     * @throws IOException on IOException
+     */
+    static AnimeInfo fromRecord(byte[] record) throws IOException {
+        return AnimeInfoBinary.readAnimeInfo(new DataInputStream(new ByteArrayInputStream(record)));
+    }
+}
@@ -0,0 +1,179 @@
+package animeinfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * An index of the stored AnimeInfos that is only built on first use, so a mapped AnimeInfo file is not decoded
+ * at setup.
+ * A build reads the AnimeInfos without blocking adds. Adds made during the build are noted and applied to the built
+ * index before it is published with a single write, so a build never puts back an AnimeInfo that was replaced
+ * meanwhile. Changes must be given in the order the AnimeInfos were put in the map.
+ *
+ * @param <T> the type of the index
+ */
+abstract class AnimeInfoLazyIndex<T> {
+    private final Object buildLock = new Object();
+    private final Object changeLock = new Object();
+    private final List<AnimeInfo[]> changeList = new ArrayList<>();
+    private volatile T index;
+    private volatile boolean building;
+    private boolean buildStarted;
+    private Map<String, AnimeInfo> titleToAnimeInfoMap;
+    private int generation;
+
+    /**
+     * Makes an index of a map that is not built yet.
+     *
+     * @param titleToAnimeInfoMap the map of the stored AnimeInfos
+     */
+    AnimeInfoLazyIndex(Map<String, AnimeInfo> titleToAnimeInfoMap) {
+        this.titleToAnimeInfoMap = titleToAnimeInfoMap;
+    }
+
+    /**
+     * Makes an empty index.
+     *
+     * @return the index
+     */
+    protected abstract T newIndex();
+
+    /**
+     * Changes an index for an AnimeInfo put in the map. Applying a change the index already has must leave it the same.
+     *
+     * @param index        the index
+     * @param oldAnimeInfo the AnimeInfo that was replaced, otherwise null
+     * @param animeInfo    the AnimeInfo that was put
+     * @return the changed index, which is the same index unless the index is immutable
+     */
+    protected abstract T change(T index, AnimeInfo oldAnimeInfo, AnimeInfo animeInfo);
+
+    /**
+     * Drops the index so it is built again from a new map on next use. A build of the old map is thrown away.
+     *
+     * @param titleToAnimeInfoMap the new map of the stored AnimeInfos
+     */
+    void reset(Map<String, AnimeInfo> titleToAnimeInfoMap) {
+        synchronized(changeLock) {
+            this.titleToAnimeInfoMap = titleToAnimeInfoMap;
+            index = null;
+            building = false;
+            buildStarted = false;
+            changeList.clear();
+            generation++;
+        }
+    }
+
+    /**
+     * Gets the index, building it first on this thread if it has not been built.
+     *
+     * @return the index
+     */
+    T get() {
+        T index = this.index;
+        while(index == null) {
+            synchronized(buildLock) {
+                index = this.index;
+                if(index == null) {
+                    index = build();
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Gets the index without blocking, starting to build it in the background if it has not been built.
+     *
+     * @param executor the executor to build it with
+     * @return the index, otherwise null until it has been built
+     */
+    T getIfBuilt(Executor executor) {
+        T index = this.index;
+        if(index == null) {
+            synchronized(changeLock) {
+                if(buildStarted) {
+                    return null;
+                }
+                buildStarted = true;
+            }
+
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        get();
+                    }
+                });
+            }
+            catch(RejectedExecutionException e) { // built by the next get instead
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Changes the index for an AnimeInfo put in the map, or notes the change if the index is being built.
+     *
+     * @param oldAnimeInfo the AnimeInfo that was replaced, otherwise null
+     * @param animeInfo    the AnimeInfo that was put
+     */
+    void change(AnimeInfo oldAnimeInfo, AnimeInfo animeInfo) {
+        // the map is changed first, so a build that starts after this check sees the AnimeInfo in the map;
+        // building is read first and cleared last, so a build can not finish between the two reads unseen
+        if(!building && index == null) {
+            return;
+        }
+
+        synchronized(changeLock) {
+            if(index != null) {
+                index = change(index, oldAnimeInfo, animeInfo);
+            }
+            else if(building) {
+                changeList.add(new AnimeInfo[]{oldAnimeInfo, animeInfo});
+            }
+        }
+    }
+
+    /**
+     * Builds the index from the map and publishes it. Only called while holding the build lock.
+     *
+     * @return the index, otherwise null if the map was replaced during the build
+     */
+    private T build() {
+        Map<String, AnimeInfo> builtTitleToAnimeInfoMap;
+        int builtGeneration;
+        synchronized(changeLock) {
+            builtTitleToAnimeInfoMap = titleToAnimeInfoMap;
+            builtGeneration = generation;
+            changeList.clear();
+            building = true;
+        }
+
+        T builtIndex = newIndex();
+        for(AnimeInfo animeInfo : builtTitleToAnimeInfoMap.values()) {
+            builtIndex = change(builtIndex, null, animeInfo);
+        }
+
+        synchronized(changeLock) {
+            if(builtGeneration != generation) {
+                return null;
+            }
+
+            // the build may or may not have seen a noted change, applying it again leaves the index the same
+            for(AnimeInfo[] noted : changeList) {
+                builtIndex = change(builtIndex, noted[0], noted[1]);
+            }
+            changeList.clear();
+            index = builtIndex;
+            building = false;
+
+            return builtIndex;
+        }
+    }
+}
@@ -1,16 +1,152 @@
 package animeinfo;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class AnimeInfoManager {
-    private static Map<String, AnimeInfo> titleToAnimeInfoMap;
-    private static boolean changed;
+    public static final int MIN_COMPACTION_RECORDS = 1000;
+    private static volatile ConcurrentMap<String, AnimeInfo> titleToAnimeInfoMap;
+    private static final ConcurrentMap<String, CompletableFuture<AnimeInfo>> titleToFetchMap;
+    private static final AtomicBoolean changed;
+    private static final ExecutorService fetchExecutor;
+    private static final Set<String> changedTitleSet;
+    private static volatile String journalLocation;
+    private static volatile AnimeInfoJournal journal;
+    private static volatile String mappedLocation;
+    private static volatile List<AnimeInfo> mappedAnimeInfoList;
+    private static final Object saveLock;
+    private static final Object addLock;
+    private static final AnimeInfoLazyIndex<AnimeInfoSearchIndex> searchIndex;
+    private static final AnimeInfoLazyIndex<AnimeInfoAliasIndex> aliasIndex;
+    private static final AnimeInfoLazyIndex<AnimeInfoFuzzyIndex> fuzzyIndex;
+    private static final AnimeInfoLazyIndex<AnimeInfoFacetIndex> facetIndex;
+    private static final AnimeInfoLazyIndex<AnimeInfoDateIndex> dateIndex;
+    private static final AnimeInfoLazyIndex<AnimeInfoTitleTrie> titleTrie;
 
     // static initializer
     static {
-        titleToAnimeInfoMap = new TreeMap<>();
-        changed = false;
+        titleToAnimeInfoMap = new ConcurrentSkipListMap<>();
+        titleToFetchMap = new ConcurrentHashMap<>();
+        changed = new AtomicBoolean(false);
+        fetchExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AnimeInfo fetch");
+                thread.setDaemon(true); // don't keep the program alive just for a fetch
+
+                return thread;
+            }
+        });
+        changedTitleSet = ConcurrentHashMap.newKeySet();
+        journalLocation = null;
+        journal = null;
+        mappedLocation = null;
+        mappedAnimeInfoList = new ArrayList<>();
+        saveLock = new Object();
+        addLock = new Object();
+        // each index is built on first use, so a mapped AnimeInfo file is not decoded at setup
+        searchIndex = new AnimeInfoLazyIndex<AnimeInfoSearchIndex>(titleToAnimeInfoMap) {
+            @Override
+            protected AnimeInfoSearchIndex newIndex() {
+                return new AnimeInfoSearchIndex();
+            }
+
+            @Override
+            protected AnimeInfoSearchIndex change(AnimeInfoSearchIndex index, AnimeInfo oldAnimeInfo,
+                                                  AnimeInfo animeInfo) {
+                index.put(animeInfo);
+
+                return index;
+            }
+        };
+        aliasIndex = new AnimeInfoLazyIndex<AnimeInfoAliasIndex>(titleToAnimeInfoMap) {
+            @Override
+            protected AnimeInfoAliasIndex newIndex() {
+                return new AnimeInfoAliasIndex();
+            }
+
+            @Override
+            protected AnimeInfoAliasIndex change(AnimeInfoAliasIndex index, AnimeInfo oldAnimeInfo,
+                                                 AnimeInfo animeInfo) {
+                index.put(animeInfo, oldAnimeInfo);
+
+                return index;
+            }
+        };
+        fuzzyIndex = new AnimeInfoLazyIndex<AnimeInfoFuzzyIndex>(titleToAnimeInfoMap) {
+            @Override
+            protected AnimeInfoFuzzyIndex newIndex() {
+                return new AnimeInfoFuzzyIndex();
+            }
+
+            @Override
+            protected AnimeInfoFuzzyIndex change(AnimeInfoFuzzyIndex index, AnimeInfo oldAnimeInfo,
+                                                 AnimeInfo animeInfo) {
+                index.put(animeInfo);
+
+                return index;
+            }
+        };
+        facetIndex = new AnimeInfoLazyIndex<AnimeInfoFacetIndex>(titleToAnimeInfoMap) {
+            @Override
+            protected AnimeInfoFacetIndex newIndex() {
+                return new AnimeInfoFacetIndex();
+            }
+
+            @Override
+            protected AnimeInfoFacetIndex change(AnimeInfoFacetIndex index, AnimeInfo oldAnimeInfo,
+                                                 AnimeInfo animeInfo) {
+                index.put(animeInfo);
+
+                return index;
+            }
+        };
+        dateIndex = new AnimeInfoLazyIndex<AnimeInfoDateIndex>(titleToAnimeInfoMap) {
+            @Override
+            protected AnimeInfoDateIndex newIndex() {
+                return new AnimeInfoDateIndex();
+            }
+
+            @Override
+            protected AnimeInfoDateIndex change(AnimeInfoDateIndex index, AnimeInfo oldAnimeInfo,
+                                                AnimeInfo animeInfo) {
+                index.put(animeInfo);
+
+                return index;
+            }
+        };
+        titleTrie = new AnimeInfoLazyIndex<AnimeInfoTitleTrie>(titleToAnimeInfoMap) {
+            @Override
+            protected AnimeInfoTitleTrie newIndex() {
+                return AnimeInfoTitleTrie.EMPTY;
+            }
+
+            @Override
+            protected AnimeInfoTitleTrie change(AnimeInfoTitleTrie index, AnimeInfo oldAnimeInfo,
+                                                AnimeInfo animeInfo) {
+                if(oldAnimeInfo != null) {
+                    index = index.without(oldAnimeInfo);
+                }
+
+                return index.with(animeInfo);
+            }
+        };
     }
 
     /**
@@ -24,24 +160,215 @@ public class AnimeInfoManager {
      * @param fileLocation the location of the Theme file
      */
     public static void setup(String fileLocation) {
-        titleToAnimeInfoMap = AnimeInfoReader.load(fileLocation);
+        Map<String, AnimeInfo> loadedMap = AnimeInfoReader.loadMapped(fileLocation);
+        ConcurrentMap<String, AnimeInfo> loadedTitleToAnimeInfoMap = new ConcurrentSkipListMap<>(loadedMap);
+
+        // entries saved since the last snapshot are in the journal
+        AnimeInfoJournal loadedJournal = new AnimeInfoJournal(fileLocation);
+        loadedJournal.replay(loadedTitleToAnimeInfoMap);
+
+        synchronized(addLock) {
+            titleToAnimeInfoMap = loadedTitleToAnimeInfoMap;
+            changedTitleSet.clear();
+            journal = loadedJournal;
+            journalLocation = fileLocation;
+            mappedAnimeInfoList = new ArrayList<>(loadedMap.values());
+            mappedLocation = fileLocation;
+            searchIndex.reset(loadedTitleToAnimeInfoMap);
+            aliasIndex.reset(loadedTitleToAnimeInfoMap);
+            fuzzyIndex.reset(loadedTitleToAnimeInfoMap);
+            facetIndex.reset(loadedTitleToAnimeInfoMap);
+            dateIndex.reset(loadedTitleToAnimeInfoMap);
+            titleTrie.reset(loadedTitleToAnimeInfoMap);
+        }
     }
 
     /**
-     * Gets an AnimeInfo object.
+     * Gets an AnimeInfo object, blocking until it has been fetched if needed.
+     * If a fetch fails, a stored AnimeInfo due for a refetch is returned as it is.
      * @param title the title
      * @return the AnimeInfo object
+     * @throws java.util.concurrent.CompletionException if the title is not stored and could not be fetched
      */
     public static AnimeInfo getAnimeInfo(String title) {
+        return getAnimeInfoAsync(title).join();
+    }
+
+    /**
+     * Gets an AnimeInfo object without blocking.
+     * Concurrent requests for the same missing title, however it is written, share a single fetch.
+     * @param title the title
+     * @return a future that completes with the AnimeInfo object
+     */
+    public static CompletableFuture<AnimeInfo> getAnimeInfoAsync(String title) {
+        return getAnimeInfoAsync(title, fetchExecutor);
+    }
+
+    /**
+     * Gets an AnimeInfo object without blocking, running any needed fetch on the given executor.
+     * Concurrent requests for the same missing title, however it is written, share a single fetch.
+     * @param title    the title
+     * @param executor the executor to fetch on
+     * @return a future that completes with the AnimeInfo object
+     */
+    public static CompletableFuture<AnimeInfo> getAnimeInfoAsync(String title, final Executor executor) {
+        return getAnimeInfoWithFetcher(title, new Function<String, CompletableFuture<AnimeInfo>>() {
+            @Override
+            public CompletableFuture<AnimeInfo> apply(final String title) {
+                return CompletableFuture.supplyAsync(new Supplier<AnimeInfo>() {
+                    @Override
+                    public AnimeInfo get() {
+                        return new AnimeInfo(title);
+                    }
+                }, executor);
+            }
+        });
+    }
+
+    /**
+     * Gets an AnimeInfo object without blocking, running any needed fetch through the given pipeline.
+     * Concurrent requests for the same missing title, however it is written, share a single fetch.
+     * @param title    the title
+     * @param pipeline the pipeline to fetch with
+     * @return a future that completes with the AnimeInfo object
+     */
+    public static CompletableFuture<AnimeInfo> getAnimeInfoAsync(String title, final AnimeInfoPipeline pipeline) {
+        return getAnimeInfoWithFetcher(title, new Function<String, CompletableFuture<AnimeInfo>>() {
+            @Override
+            public CompletableFuture<AnimeInfo> apply(String title) {
+                return pipeline.submit(title);
+            }
+        });
+    }
+
+    /**
+     * Gets an AnimeInfo object without blocking, starting a fetch with the given fetcher if needed.
+     * @param title   the title
+     * @param fetcher the fetcher that starts fetching a title
+     * @return a future that completes with the AnimeInfo object
+     */
+    private static CompletableFuture<AnimeInfo> getAnimeInfoWithFetcher(final String title, Function<String, CompletableFuture<AnimeInfo>> fetcher) {
         AnimeInfo animeInfo = titleToAnimeInfoMap.get(title);
-        // see if title was found, or if the found AnimeInfo is missing fields
-        if(animeInfo == null || animeInfo.isMissingFields()) {
-            animeInfo = new AnimeInfo(title);
-            titleToAnimeInfoMap.put(animeInfo.getTitle(), animeInfo);
-            changed = true;
+        // otherwise see if the title is another way of writing a stored title,
+        // leaving that to the fetch if the alias index has not been built so the caller never waits for the build
+        if(animeInfo == null) {
+            AnimeInfoAliasIndex aliasIndex = AnimeInfoManager.aliasIndex.getIfBuilt(fetchExecutor);
+            if(aliasIndex == null) {
+                fetcher = withStoredTitleLookup(fetcher);
+            }
+            else {
+                String storedTitle = getStoredTitle(aliasIndex, title);
+                if(storedTitle != null) {
+                    animeInfo = titleToAnimeInfoMap.get(storedTitle);
+                }
+            }
+        }
+        // see if title was found, and the found AnimeInfo is complete or has only known absent fields
+        if(animeInfo != null && !animeInfo.isRefetchDue(System.currentTimeMillis())) {
+            return CompletableFuture.completedFuture(animeInfo);
+        }
+        final AnimeInfo storedAnimeInfo = animeInfo;
+
+        // ways of writing the same title share a fetch, a title without letters or digits only shares with itself
+        String normalizedTitle = AnimeInfoAliasIndex.normalize(title);
+        final String fetchKey = normalizedTitle.isEmpty() ? title : normalizedTitle;
+        final CompletableFuture<AnimeInfo> fetch = new CompletableFuture<>();
+        CompletableFuture<AnimeInfo> inFlightFetch = titleToFetchMap.putIfAbsent(fetchKey, fetch);
+        if(inFlightFetch != null) { // someone else is already fetching this title
+            return inFlightFetch;
+        }
+
+        BiConsumer<AnimeInfo, Throwable> fetchCompleter = new BiConsumer<AnimeInfo, Throwable>() {
+            @Override
+            public void accept(AnimeInfo fetchedAnimeInfo, Throwable throwable) {
+                Throwable failure = throwable;
+                try {
+                    // an AnimeInfo the fetch found already stored is not stored again
+                    if(failure == null && fetchedAnimeInfo != titleToAnimeInfoMap.get(fetchedAnimeInfo.getTitle())) {
+                        // a title for an already stored ANN page updates the stored AnimeInfo instead of adding another
+                        String storedTitle = aliasIndex.get().getTitleByLink(fetchedAnimeInfo.getLink());
+                        if(storedTitle != null && !storedTitle.equals(title)) {
+                            fetchedAnimeInfo.setTitle(storedTitle);
+                            aliasIndex.get().putAlias(title, storedTitle);
+                        }
+
+                        // back off further each time fields are still absent
+                        AnimeInfo oldAnimeInfo = titleToAnimeInfoMap.get(fetchedAnimeInfo.getTitle());
+                        if(oldAnimeInfo != null && fetchedAnimeInfo.isMissingFields()) {
+                            fetchedAnimeInfo.setChecks(oldAnimeInfo.getChecks() + 1);
+                        }
+                        add(fetchedAnimeInfo);
+                    }
+                }
+                catch(Throwable e) { // storing failed, the fetch must still be completed below
+                    failure = e;
+                }
+                finally {
+                    // stop sharing the fetch before completing it so later misses start a new one
+                    titleToFetchMap.remove(fetchKey, fetch);
+
+                    // a failed fetch says nothing about the title, so a stored AnimeInfo is kept as it is
+                    if(failure == null) {
+                        fetch.complete(fetchedAnimeInfo);
+                    }
+                    else if(storedAnimeInfo != null) {
+                        fetch.complete(storedAnimeInfo);
+                    }
+                    else {
+                        fetch.completeExceptionally(failure);
+                    }
+                }
+            }
+        };
+
+        try {
+            fetcher.apply(title).whenComplete(fetchCompleter);
+        }
+        catch(RuntimeException e) { // the fetch could not even be started
+            fetchCompleter.accept(null, e);
         }
 
-        return animeInfo;
+        return fetch;
+    }
+
+    /**
+     * Makes a fetcher that first looks a title up as another way of writing a stored title, on a fetch thread since
+     * that can build the alias index, and only fetches it if there is no such AnimeInfo or it is due for a refetch.
+     * @param fetcher the fetcher that starts fetching a title
+     * @return the fetcher, which completes with the stored AnimeInfo itself if it did not fetch or the fetch failed
+     */
+    private static Function<String, CompletableFuture<AnimeInfo>> withStoredTitleLookup(final Function<String, CompletableFuture<AnimeInfo>> fetcher) {
+        return new Function<String, CompletableFuture<AnimeInfo>>() {
+            @Override
+            public CompletableFuture<AnimeInfo> apply(final String title) {
+                return CompletableFuture.supplyAsync(new Supplier<AnimeInfo>() {
+                    @Override
+                    public AnimeInfo get() {
+                        String storedTitle = getStoredTitle(title);
+
+                        return storedTitle == null ? null : titleToAnimeInfoMap.get(storedTitle);
+                    }
+                }, fetchExecutor).thenCompose(new Function<AnimeInfo, CompletableFuture<AnimeInfo>>() {
+                    @Override
+                    public CompletableFuture<AnimeInfo> apply(final AnimeInfo storedAnimeInfo) {
+                        if(storedAnimeInfo == null) {
+                            return fetcher.apply(title);
+                        }
+                        if(!storedAnimeInfo.isRefetchDue(System.currentTimeMillis())) {
+                            return CompletableFuture.completedFuture(storedAnimeInfo);
+                        }
+
+                        // a failed fetch says nothing about the title, so the stored AnimeInfo is kept as it is
+                        return fetcher.apply(title).handle(new BiFunction<AnimeInfo, Throwable, AnimeInfo>() {
+                            @Override
+                            public AnimeInfo apply(AnimeInfo fetchedAnimeInfo, Throwable throwable) {
+                                return throwable == null ? fetchedAnimeInfo : storedAnimeInfo;
+                            }
+                        });
+                    }
+                });
+            }
+        };
     }
 
     /**
@@ -49,18 +376,252 @@ public class AnimeInfoManager {
      * @param animeInfo the AnimeInfo object
      */
     public static void add(AnimeInfo animeInfo) {
-        titleToAnimeInfoMap.put(animeInfo.getTitle(), animeInfo);
-        changed = true;
+        // the indexes are changed in the same order as the map
+        synchronized(addLock) {
+            AnimeInfo oldAnimeInfo = titleToAnimeInfoMap.put(animeInfo.getTitle(), animeInfo);
+            changedTitleSet.add(animeInfo.getTitle());
+            changed.set(true);
+
+            aliasIndex.change(oldAnimeInfo, animeInfo);
+            fuzzyIndex.change(oldAnimeInfo, animeInfo);
+            searchIndex.change(oldAnimeInfo, animeInfo);
+            facetIndex.change(oldAnimeInfo, animeInfo);
+            dateIndex.change(oldAnimeInfo, animeInfo);
+            titleTrie.change(oldAnimeInfo, animeInfo);
+        }
+    }
+
+    /**
+     * Searches the stored AnimeInfos by the words in their titles, tags and synopses, without using the network.
+     * @param query the words to search for, the last word also matches longer words it is the start of
+     * @param limit the most AnimeInfos to return
+     * @return the best matching AnimeInfos, best first
+     */
+    public static List<AnimeInfo> search(String query, int limit) {
+        List<AnimeInfo> animeInfoList = new ArrayList<>();
+        for(String title : searchIndex.get().search(query, limit)) {
+            AnimeInfo animeInfo = titleToAnimeInfoMap.get(title);
+            if(animeInfo != null) {
+                animeInfoList.add(animeInfo);
+            }
+        }
+
+        return animeInfoList;
+    }
+
+    /**
+     * Finds the stored AnimeInfos by their tags and category, without using the network.
+     * @param allTags    the tags an AnimeInfo must all have, empty for no restriction
+     * @param anyTags    the tags an AnimeInfo must have at least one of, empty for no restriction
+     * @param noneTags   the tags an AnimeInfo must not have
+     * @param categories the categories an AnimeInfo must be one of, empty for any category
+     * @param limit      the most AnimeInfos to return
+     * @return the matching AnimeInfos, in no particular order
+     */
+    public static List<AnimeInfo> findByTags(Collection<String> allTags, Collection<String> anyTags,
+                                             Collection<String> noneTags, Collection<String> categories, int limit) {
+        List<AnimeInfo> animeInfoList = new ArrayList<>();
+        for(String title : facetIndex.get().find(allTags, anyTags, noneTags, categories, limit)) {
+            AnimeInfo animeInfo = titleToAnimeInfoMap.get(title);
+            if(animeInfo != null) {
+                animeInfoList.add(animeInfo);
+            }
+        }
+
+        return animeInfoList;
+    }
+
+    /**
+     * Counts the stored AnimeInfos with each tag among those matching a query, without using the network.
+     * @param allTags    the tags an AnimeInfo must all have, empty for no restriction
+     * @param anyTags    the tags an AnimeInfo must have at least one of, empty for no restriction
+     * @param noneTags   the tags an AnimeInfo must not have
+     * @param categories the categories an AnimeInfo must be one of, empty for any category
+     * @return the number of matching AnimeInfos with each tag, by tag
+     */
+    public static Map<String, Integer> getTagCounts(Collection<String> allTags, Collection<String> anyTags,
+                                                    Collection<String> noneTags, Collection<String> categories) {
+        return facetIndex.get().getTagCounts(allTags, anyTags, noneTags, categories);
+    }
+
+    /**
+     * Finds the stored AnimeInfos that first aired in a season, without using the network.
+     * @param season the season in TERM YEAR format, like "Spring 1998"
+     * @return the AnimeInfos, in the order they aired
+     */
+    public static List<AnimeInfo> findBySeason(String season) {
+        return getAnimeInfoList(dateIndex.get().findBySeason(season));
+    }
+
+    /**
+     * Finds the stored AnimeInfos that first aired in a year, without using the network.
+     * @param year the year
+     * @return the AnimeInfos, in the order they aired
+     */
+    public static List<AnimeInfo> findByYear(int year) {
+        return getAnimeInfoList(dateIndex.get().findByYear(year));
+    }
+
+    /**
+     * Finds the stored AnimeInfos that first aired in a date interval, without using the network.
+     * @param fromDate the first date in YYYY-MM-DD format
+     * @param toDate   the last date in YYYY-MM-DD format
+     * @return the AnimeInfos, in the order they aired
+     */
+    public static List<AnimeInfo> findByDates(String fromDate, String toDate) {
+        return getAnimeInfoList(dateIndex.get().findByDates(fromDate, toDate));
+    }
+
+    /**
+     * Gets the stored AnimeInfos of titles, leaving out any no longer stored.
+     * @param titleList the titles
+     * @return the AnimeInfos, in the same order
+     */
+    private static List<AnimeInfo> getAnimeInfoList(List<String> titleList) {
+        List<AnimeInfo> animeInfoList = new ArrayList<>(titleList.size());
+        for(String title : titleList) {
+            AnimeInfo animeInfo = titleToAnimeInfoMap.get(title);
+            if(animeInfo != null) {
+                animeInfoList.add(animeInfo);
+            }
+        }
+
+        return animeInfoList;
+    }
+
+    /**
+     * Gets the stored title a title means, without using the network.
+     * The title is looked up as an alias of the stored titles, then by the ANN link it resolved to before.
+     * The first call builds the alias index, so it should not be made on a thread that must not wait.
+     * @param title the title, written any way
+     * @return the stored title, otherwise null
+     */
+    public static String getStoredTitle(String title) {
+        return getStoredTitle(AnimeInfoManager.aliasIndex.get(), title);
+    }
+
+    /**
+     * Gets the stored title a title means with an alias index.
+     * @param aliasIndex the alias index
+     * @param title      the title, written any way
+     * @return the stored title, otherwise null
+     */
+    private static String getStoredTitle(AnimeInfoAliasIndex aliasIndex, String title) {
+        String storedTitle = aliasIndex.getTitle(title);
+        if(storedTitle == null) {
+            storedTitle = aliasIndex.getTitleByLink(ANNLinkCache.get(title));
+        }
+
+        return storedTitle;
+    }
+
+    /**
+     * Checks if a title is stored, either as it is or as another way of writing a stored title.
+     * @param title the title
+     * @return true if the title is stored
+     */
+    public static boolean isStored(String title) {
+        return titleToAnimeInfoMap.containsKey(title) || getStoredTitle(title) != null;
+    }
+
+    /**
+     * Finds stored titles written almost like a title, like a title with a typo, without using the network.
+     * @param title the title
+     * @param limit the most titles to return
+     * @return the stored titles, closest first
+     */
+    public static List<String> findSimilarTitles(String title, int limit) {
+        return fuzzyIndex.get().find(title, limit);
+    }
+
+    /**
+     * Suggests stored titles for what has been typed so far, for each of their ways of writing that starts with it.
+     * This never blocks, so it can be called on every keystroke; until the title trie has been built in the background
+     * there are no suggestions.
+     * @param prefix what has been typed, written any way
+     * @param limit  the most titles to return
+     * @return the stored titles
+     */
+    public static List<String> suggestTitles(String prefix, int limit) {
+        AnimeInfoTitleTrie titleTrie = AnimeInfoManager.titleTrie.getIfBuilt(fetchExecutor);
+        if(titleTrie == null) {
+            return new ArrayList<>();
+        }
+
+        return titleTrie.suggest(prefix, limit);
     }
 
     /**
      * Saves the AnimeInfo to a given file location.
+     * If the location is the one the manager was setup from, only the changed entries are appended to its journal,
+     * and the file itself is rewritten before returning once the journal has grown large.
      * @param fileLocation  the file location
      */
     public static void save(String fileLocation) {
-        if(changed) {
-            AnimeInfoWriter.save(fileLocation, titleToAnimeInfoMap);
-            changed = false;
+        synchronized(saveLock) {
+            AnimeInfoJournal journal = AnimeInfoManager.journal;
+            if(journal == null || !fileLocation.equals(journalLocation)) {
+                if(changed.compareAndSet(true, false)) {
+                    releaseMapping(fileLocation);
+                    if(!AnimeInfoWriter.save(fileLocation, titleToAnimeInfoMap)) {
+                        changed.set(true); // try again on the next save
+                    }
+                }
+
+                return;
+            }
+
+            changed.set(false);
+            List<String> titleList = new ArrayList<>(changedTitleSet);
+            changedTitleSet.removeAll(titleList);
+
+            List<AnimeInfo> animeInfoList = new ArrayList<>();
+            for(String title : titleList) {
+                AnimeInfo animeInfo = titleToAnimeInfoMap.get(title);
+                if(animeInfo != null) {
+                    animeInfoList.add(animeInfo);
+                }
+            }
+
+            if(!journal.append(animeInfoList)) {
+                changedTitleSet.addAll(titleList); // try again on the next save
+                changed.set(true);
+
+                return;
+            }
+
+            // rewrite the file once the journal costs more to replay than the file does to write
+            if(journal.getRecordCount() >= Math.max(MIN_COMPACTION_RECORDS, titleToAnimeInfoMap.size() / 2)) {
+                compact(fileLocation, journal);
+            }
+        }
+    }
+
+    /**
+     * Rewrites an AnimeInfo file so its journal can be dropped.
+     * This is done before save returns, since the program usually exits right after saving.
+     * Every record in the journal is already in the map, so once the file is rewritten the journal is not needed;
+     * entries added while the file is being written are still waiting for the next save, not in the journal.
+     * @param fileLocation the file location
+     * @param journal      the file's journal
+     */
+    private static void compact(String fileLocation, AnimeInfoJournal journal) {
+        // the writer only replaces the file once the whole snapshot is on disk
+        releaseMapping(fileLocation);
+        if(AnimeInfoWriter.save(fileLocation, titleToAnimeInfoMap)) {
+            journal.clear();
+        }
+    }
+
+    /**
+     * Unmaps the file the manager was setup from if it is about to be replaced, since a mapped file can not be
+     * replaced on Windows. The AnimeInfos that were views of it are copied to the heap first.
+     * @param fileLocation the location of the file about to be replaced
+     */
+    private static void releaseMapping(String fileLocation) {
+        if(fileLocation.equals(mappedLocation) && !mappedAnimeInfoList.isEmpty()) {
+            MappedAnimeInfo.release(mappedAnimeInfoList);
+            mappedAnimeInfoList = new ArrayList<>();
         }
     }
 }
@@ -4,25 +4,34 @@ import animeinfo.AnimeInfo;
 import animeinfo.AnimeInfoManager;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
 
 /**
  * An AnimeInfoPanel.
  */
 public class AnimeInfoPanel extends JPanel {
     public static final String SEPARATOR = System.getProperty("line.separator");
+    public static final int FIND_LIMIT = 10, SIMILAR_LIMIT = 5, SUGGESTION_LIMIT = 8;
+    private boolean settingSuggestion;
 
     public AnimeInfoPanel() {
         setLayout(new BorderLayout());
 
         JPanel searchPanel = new JPanel();
-        searchPanel.setLayout(new GridLayout(0, 2));
+        searchPanel.setLayout(new GridLayout(0, 3));
         JTextField searchTextField = new JTextField(20);
         JButton searchButton = new JButton("Search");
+        JButton findButton = new JButton("Find stored");
         searchPanel.add(searchTextField);
         searchPanel.add(searchButton);
+        searchPanel.add(findButton);
         add(searchPanel, BorderLayout.NORTH);
 
         JTextArea resultsArea = new JTextArea();
@@ -37,33 +46,189 @@ public class AnimeInfoPanel extends JPanel {
         searchProgressBar.setString("Search status");
         add(searchProgressBar, BorderLayout.SOUTH);
 
+        // suggest stored titles while typing, the suggestions come from an immutable trie and never block
+        final JPopupMenu suggestionPopupMenu = new JPopupMenu();
+        suggestionPopupMenu.setFocusable(false);
+        searchTextField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                if(!settingSuggestion) {
+                    showSuggestions(searchTextField, suggestionPopupMenu);
+                }
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                if(!settingSuggestion) {
+                    showSuggestions(searchTextField, suggestionPopupMenu);
+                }
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
         // add listener
         ActionListener actionListener = new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                new SwingWorker<Boolean, Void>() {
-                    public Boolean doInBackground() {
-                        String searchTitle = searchTextField.getText();
-                        searchProgressBar.setString("Searching for: " + searchTitle);
-                        searchProgressBar.setIndeterminate(true);
-
-                        AnimeInfo animeInfo = AnimeInfoManager.getAnimeInfo(searchTitle);
-
-                        String text = animeInfo + SEPARATOR + SEPARATOR +  resultsArea.getText();
-                        resultsArea.setText(text);
+                suggestionPopupMenu.setVisible(false);
+                final String typedTitle = searchTextField.getText();
+                searchProgressBar.setString("Checking stored data for: " + typedTitle);
 
-                        searchProgressBar.setString("Added data for: " + searchTitle);
-                        searchProgressBar.setIndeterminate(false);
+                // offer stored titles written almost the same before going to the network
+                new SwingWorker<List<String>, Void>() {
+                    public List<String> doInBackground() {
+                        if(AnimeInfoManager.isStored(typedTitle)) {
+                            return new ArrayList<>();
+                        }
 
-                        return true;
+                        return AnimeInfoManager.findSimilarTitles(typedTitle, SIMILAR_LIMIT);
                     }
 
                     public void done() {
+                        List<String> similarTitleList;
+                        try {
+                            similarTitleList = get();
+                        }
+                        catch(Exception e) {
+                            similarTitleList = new ArrayList<>();
+                        }
+
+                        String searchTitle = typedTitle;
+                        if(!similarTitleList.isEmpty()) {
+                            String searchOnline = "Search online for: " + typedTitle;
+                            List<String> optionList = new ArrayList<>(similarTitleList);
+                            optionList.add(searchOnline);
+
+                            Object choice = JOptionPane.showInputDialog(AnimeInfoPanel.this,
+                                    "Did you mean one of these stored titles?", "Similar titles",
+                                    JOptionPane.QUESTION_MESSAGE, null, optionList.toArray(), optionList.get(0));
+                            if(choice == null) {
+                                searchProgressBar.setString("Search status");
+
+                                return;
+                            }
+                            if(!choice.equals(searchOnline)) {
+                                searchTitle = (String) choice;
+                            }
+                        }
+
+                        lookUp(searchTitle, resultsArea, searchProgressBar);
                     }
                 }.execute();
             }
         };
         searchTextField.addActionListener(actionListener);
         searchButton.addActionListener(actionListener);
+
+        // search the stored AnimeInfos, without using the network
+        findButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                final String query = searchTextField.getText();
+                searchProgressBar.setString("Finding stored data for: " + query);
+
+                // the search index is built on first use, which can take a moment
+                new SwingWorker<String, Void>() {
+                    public String doInBackground() {
+                        StringBuilder text = new StringBuilder("Stored matches for: " + query + SEPARATOR);
+                        for(AnimeInfo animeInfo : AnimeInfoManager.search(query, FIND_LIMIT)) {
+                            text.append("    ").append(animeInfo.getTitle()).append(" (").append(animeInfo.getSeason())
+                                    .append(")").append(SEPARATOR);
+                        }
+
+                        return text.toString();
+                    }
+
+                    public void done() {
+                        try {
+                            resultsArea.setText(get() + SEPARATOR + resultsArea.getText());
+                            searchProgressBar.setString("Found stored data for: " + query);
+                        }
+                        catch(Exception e) {
+                            searchProgressBar.setString("Could not find stored data for: " + query);
+                        }
+                    }
+                }.execute();
+            }
+        });
+    }
+
+    /**
+     * Shows the stored titles starting with what has been typed below the search text field.
+     *
+     * @param searchTextField     the search text field
+     * @param suggestionPopupMenu the popup menu to show them in
+     */
+    private void showSuggestions(final JTextField searchTextField, final JPopupMenu suggestionPopupMenu) {
+        suggestionPopupMenu.setVisible(false);
+        suggestionPopupMenu.removeAll();
+
+        List<String> suggestionList = AnimeInfoManager.suggestTitles(searchTextField.getText(), SUGGESTION_LIMIT);
+        if(suggestionList.isEmpty() || !searchTextField.isShowing()) {
+            return;
+        }
+
+        for(final String suggestion : suggestionList) {
+            JMenuItem suggestionMenuItem = new JMenuItem(suggestion);
+            suggestionMenuItem.addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    // a picked suggestion is not typing, so it does not bring the suggestions back up
+                    settingSuggestion = true;
+                    try {
+                        searchTextField.setText(suggestion);
+                    }
+                    finally {
+                        settingSuggestion = false;
+                    }
+                    suggestionPopupMenu.setVisible(false);
+                    searchTextField.requestFocusInWindow();
+                }
+            });
+            suggestionPopupMenu.add(suggestionMenuItem);
+        }
+
+        suggestionPopupMenu.show(searchTextField, 0, searchTextField.getHeight());
+    }
+
+    /**
+     * Looks up a title and adds it to the results.
+     *
+     * @param searchTitle       the title
+     * @param resultsArea       the results area
+     * @param searchProgressBar the search progress bar
+     */
+    private void lookUp(final String searchTitle, final JTextArea resultsArea, final JProgressBar searchProgressBar) {
+        new SwingWorker<Boolean, Void>() {
+            public Boolean doInBackground() {
+                searchProgressBar.setString("Searching for: " + searchTitle);
+                searchProgressBar.setIndeterminate(true);
+
+                AnimeInfo animeInfo;
+                try {
+                    animeInfo = AnimeInfoManager.getAnimeInfo(searchTitle);
+                }
+                catch(CompletionException e) { // nothing stored and nothing fetched
+                    searchProgressBar.setString("Could not get data for: " + searchTitle);
+                    searchProgressBar.setIndeterminate(false);
+
+                    return false;
+                }
+
+                String text = animeInfo + SEPARATOR + SEPARATOR +  resultsArea.getText();
+                resultsArea.setText(text);
+
+                searchProgressBar.setString("Added data for: " + searchTitle);
+                searchProgressBar.setIndeterminate(false);
+
+                return true;
+            }
+
+            public void done() {
+            }
+        }.execute();
     }
 }
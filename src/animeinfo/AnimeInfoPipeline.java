@@ -0,0 +1,97 @@
+package animeinfo;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Looks up titles in two stages: resolving the ANN link and fetching the ANN page.
+ * Each stage has its own workers and queue, so the search and page hosts can be sized independently.
+ * Pages are parsed as they are downloaded, so building the AnimeInfo from the parsed fields is cheap and is done
+ * by the fetch worker right after the page.
+ */
+public class AnimeInfoPipeline {
+    private final ExecutorService resolveExecutor, fetchExecutor;
+
+    /**
+     * A fetched and parsed page to build an AnimeInfo from.
+     */
+    private static class FetchedPage {
+        private final String link;
+        private final ANNPageParser pageParser;
+
+        private FetchedPage(String link, ANNPageParser pageParser) {
+            this.link = link;
+            this.pageParser = pageParser;
+        }
+    }
+
+    /**
+     * Makes a pipeline.
+     *
+     * @param resolveWorkers the number of titles whose links are resolved at once
+     * @param fetchWorkers   the number of pages fetched at once
+     */
+    public AnimeInfoPipeline(int resolveWorkers, int fetchWorkers) {
+        resolveExecutor = newStageExecutor("resolve", resolveWorkers);
+        fetchExecutor = newStageExecutor("fetch", fetchWorkers);
+    }
+
+    /**
+     * Looks up a title.
+     *
+     * @param title the title
+     * @return a future that completes with the AnimeInfo of the title
+     */
+    public CompletableFuture<AnimeInfo> submit(final String title) {
+        return CompletableFuture.supplyAsync(new Supplier<String>() {
+            @Override
+            public String get() {
+                return AnimeInfo.resolveANNLink(title);
+            }
+        }, resolveExecutor).thenApplyAsync(new Function<String, FetchedPage>() {
+            @Override
+            public FetchedPage apply(String link) {
+                return new FetchedPage(link, AnimeInfo.fetchPage(link));
+            }
+        }, fetchExecutor).thenApply(new Function<FetchedPage, AnimeInfo>() {
+            @Override
+            public AnimeInfo apply(FetchedPage fetchedPage) {
+                return new AnimeInfo(title, fetchedPage.link, fetchedPage.pageParser);
+            }
+        });
+    }
+
+    /**
+     * Stops the pipeline once the titles already submitted are done.
+     */
+    public void shutdown() {
+        resolveExecutor.shutdown();
+        fetchExecutor.shutdown();
+    }
+
+    /**
+     * Makes the executor of a stage.
+     *
+     * @param stage   the name of the stage
+     * @param workers the number of workers
+     * @return the executor
+     */
+    private static ExecutorService newStageExecutor(final String stage, int workers) {
+        return Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AnimeInfo " + stage + " " + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+}
@@ -1,24 +1,61 @@
 package animeinfo;
 
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.EndElement;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An AnimeInfo reader.
  */
 public class AnimeInfoReader {
     public static final String ANIME_INFO = "animeInfo", TITLE = "title", TITLES = "titles",
-            CATEGORY = "category", LINK = "link", DATES = "dates", TAGS = "tags", SYNOPSIS = "synopsis";
+            CATEGORY = "category", LINK = "link", DATES = "dates", TAGS = "tags", SYNOPSIS = "synopsis",
+            ABSENT = "absent", CHECKED = "checked", CHECKS = "checks";
+    public static final String ANIME_INFOS = "animeInfos";
+    public static final long PARALLEL_THRESHOLD = 16 * 1024 * 1024;
+    private static final int MIN_CHUNK_LENGTH = 1024 * 1024;
+    private static final byte[] ANIME_INFO_START = ("<" + ANIME_INFO + ">").getBytes(StandardCharsets.UTF_8),
+            CHUNK_START = ("<" + ANIME_INFOS + ">").getBytes(StandardCharsets.UTF_8),
+            ANIME_INFOS_END = ("</" + ANIME_INFOS + ">").getBytes(StandardCharsets.UTF_8);
+    private static final Map<String, String> ELEMENT_NAME_MAP = new HashMap<>();
+
+    static {
+        for(String name : new String[]{ANIME_INFO, TITLE, TITLES, CATEGORY, LINK, DATES, TAGS, SYNOPSIS, ABSENT, CHECKED,
+                CHECKS}) {
+            ELEMENT_NAME_MAP.put(name, name);
+        }
+    }
 
     /**
      * Do not allow objects of this class to be made.
@@ -28,121 +65,652 @@ public class AnimeInfoReader {
 
     /**
      * Loads a list of AnimeInfos from a given file location.
+     * The file can either be XML or the binary format. Large XML files are loaded in parallel.
      *
      * @param fileLocation the file location
      * @return a list of the AnimeInfos in the file
      */
     public static Map<String, AnimeInfo> load(String fileLocation) {
-        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        if(AnimeInfoBinary.isBinaryFile(fileLocation)) {
+            return loadBinary(fileLocation);
+        }
+
+        if(new File(fileLocation).length() >= PARALLEL_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1) {
+            return loadParallel(fileLocation);
+        }
+
+        return loadSequential(fileLocation);
+    }
+
+    /**
+     * Loads a list of AnimeInfos from an XML file on the current thread.
+     *
+     * @param fileLocation the file location
+     * @return a list of the AnimeInfos in the file
+     */
+    private static Map<String, AnimeInfo> loadSequential(String fileLocation) {
         Map<String, AnimeInfo> animeInfoList = new TreeMap<>();
 
-        try {
-            InputStream inputStream = new FileInputStream(fileLocation);
-            XMLEventReader eventReader = inputFactory.createXMLEventReader(inputStream, "UTF-8");
+        try(InputStream inputStream = new BufferedInputStream(new FileInputStream(fileLocation), 64 * 1024)) {
+            XMLStreamReader streamReader = createStreamReader(inputStream);
 
-            // read the XML document
-            AnimeInfo animeInfo = null;
-            while(eventReader.hasNext()) {
-                XMLEvent event = eventReader.nextEvent();
+            AnimeInfo animeInfo;
+            while((animeInfo = readAnimeInfo(streamReader)) != null) {
+                animeInfoList.put(animeInfo.getTitle(), animeInfo);
+            }
 
-                if(event.isStartElement()) {
-                    StartElement startElement = event.asStartElement();
+            streamReader.close();
+        }
+        catch(FileNotFoundException e) {
+        }
+        catch(XMLStreamException e) {
+        }
+        catch(IOException e) {
+        }
 
-                    // if we have an AnimeInfo element, we create a new AnimeInfo
-                    if(startElement.getName().getLocalPart().equals(ANIME_INFO)) {
-                        animeInfo = new AnimeInfo();
-                    }
+        return animeInfoList;
+    }
 
-                    // start adding fields
-                    if(event.isStartElement()) {
-                        if(event.asStartElement().getName().getLocalPart().equals(TITLE)) {
-                            event = eventReader.nextEvent();
-                            animeInfo.setTitle(getString(event));
+    /**
+     * Loads a list of AnimeInfos from an XML file, parsing chunks of it in parallel.
+     * The file is split just before &lt;animeInfo&gt; elements and each chunk is parsed on its own, the chunks are
+     * then merged in file order so the last entry for a title still wins.
+     * A split that turns out not to be at an element, like one inside a synopsis, makes its chunk fail to parse,
+     * and the file is then loaded on the current thread instead.
+     *
+     * @param fileLocation the file location
+     * @return a list of the AnimeInfos in the file
+     */
+    public static Map<String, AnimeInfo> loadParallel(String fileLocation) {
+        MappedByteBuffer buffer;
+        try(FileChannel fileChannel = FileChannel.open(Paths.get(fileLocation), StandardOpenOption.READ)) {
+            if(fileChannel.size() > Integer.MAX_VALUE) {
+                return loadSequential(fileLocation);
+            }
 
-                            continue;
-                        }
-                    }
+            buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+        catch(IOException e) {
+            return new TreeMap<>();
+        }
 
-                    if(event.asStartElement().getName().getLocalPart().equals(TITLES)) {
-                        event = eventReader.nextEvent();
-                        animeInfo.setTitles(getString(event));
+        // the elements go from the first animeInfo up to the end of the root element
+        int regionStart = indexOf(buffer, ANIME_INFO_START, 0);
+        int regionEnd = lastIndexOf(buffer, ANIME_INFOS_END);
+        if(regionStart == -1 || regionEnd < regionStart || !isUTF8(buffer, regionStart)) {
+            return loadSequential(fileLocation);
+        }
 
-                        continue;
-                    }
+        // split into a few chunks per core
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        int chunkLength = Math.max(MIN_CHUNK_LENGTH, (regionEnd - regionStart) / (parallelism * 4));
+        List<Integer> chunkStartList = new ArrayList<>();
+        int chunkStart = regionStart;
+        while(chunkStart < regionEnd) {
+            chunkStartList.add(chunkStart);
 
-                    if(event.asStartElement().getName().getLocalPart().equals(CATEGORY)) {
-                        event = eventReader.nextEvent();
-                        animeInfo.setCategory(getString(event));
+            int nextStart = regionEnd - chunkStart <= chunkLength ? -1 :
+                    indexOf(buffer, ANIME_INFO_START, chunkStart + chunkLength);
+            chunkStart = nextStart == -1 || nextStart > regionEnd ? regionEnd : nextStart;
+        }
+        chunkStartList.add(regionEnd);
 
-                        continue;
-                    }
+        Map<String, AnimeInfo> animeInfoList =
+                ForkJoinPool.commonPool().invoke(new ChunkTask(buffer, chunkStartList, 0, chunkStartList.size() - 1));
+        if(animeInfoList == null) {
+            return loadSequential(fileLocation);
+        }
 
-                    if(event.isStartElement()) {
-                        if(event.asStartElement().getName().getLocalPart().equals(LINK)) {
-                            event = eventReader.nextEvent();
-                            animeInfo.setLink(getString(event));
+        return animeInfoList;
+    }
 
-                            continue;
-                        }
-                    }
+    /**
+     * Loads a list of AnimeInfos from a file in the binary format.
+     * The records are read in order after the index, so the index is skipped rather than decoded.
+     *
+     * @param fileLocation the file location
+     * @return a list of the AnimeInfos in the file
+     */
+    public static Map<String, AnimeInfo> loadBinary(String fileLocation) {
+        Map<String, AnimeInfo> animeInfoList = new TreeMap<>();
 
-                    if(event.asStartElement().getName().getLocalPart().equals(DATES)) {
-                        event = eventReader.nextEvent();
-                        animeInfo.setDates(getString(event));
+        try(DataInputStream dataInputStream =
+                    new DataInputStream(new BufferedInputStream(new FileInputStream(fileLocation), 64 * 1024))) {
+            if(dataInputStream.readInt() != AnimeInfoBinary.MAGIC || dataInputStream.readInt() != AnimeInfoBinary.VERSION) {
+                return animeInfoList;
+            }
 
-                        continue;
-                    }
+            int count = dataInputStream.readInt();
+            long dataOffset = dataInputStream.readLong();
 
-                    if(event.asStartElement().getName().getLocalPart().equals(TAGS)) {
-                        event = eventReader.nextEvent();
-                        animeInfo.setTags(getString(event));
+            // skip the index
+            long toSkip = dataOffset - AnimeInfoBinary.HEADER_LENGTH;
+            while(toSkip > 0) {
+                long skipped = dataInputStream.skip(toSkip);
+                if(skipped <= 0) {
+                    return animeInfoList;
+                }
+                toSkip -= skipped;
+            }
 
-                        continue;
-                    }
+            for(int i = 0; i < count; i++) {
+                AnimeInfo animeInfo = AnimeInfoBinary.readAnimeInfo(dataInputStream);
+                animeInfoList.put(animeInfo.getTitle(), animeInfo);
+            }
+        }
+        catch(IOException e) {
+        }
 
-                    if(event.asStartElement().getName().getLocalPart().equals(SYNOPSIS)) {
-                        event = eventReader.nextEvent();
-                        animeInfo.setSynopsis(getString(event));
+        return animeInfoList;
+    }
 
-                        continue;
-                    }
+    /**
+     * Loads a list of AnimeInfos from a file, memory mapping it if it is in the binary format.
+     * A mapped file is only read for its index, the AnimeInfos are read-only views that decode their fields from
+     * the file when asked, so most of the file never has to be on the heap.
+     * The mapping stays valid after the file is replaced by a new save, as the old file lives on until it is unmapped.
+     * Files that are not in the binary format, or are too large to map at once, are loaded as usual.
+     *
+     * @param fileLocation the file location
+     * @return a list of the AnimeInfos in the file
+     */
+    public static Map<String, AnimeInfo> loadMapped(String fileLocation) {
+        if(!AnimeInfoBinary.isBinaryFile(fileLocation)) {
+            return load(fileLocation);
+        }
+
+        MappedByteBuffer buffer;
+        try(FileChannel fileChannel = FileChannel.open(Paths.get(fileLocation), StandardOpenOption.READ)) {
+            if(fileChannel.size() > Integer.MAX_VALUE) {
+                return loadBinary(fileLocation);
+            }
+
+            buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        }
+        catch(IOException e) {
+            return new TreeMap<>();
+        }
+
+        Map<String, AnimeInfo> animeInfoList = new TreeMap<>();
+        try {
+            if(buffer.getInt(0) != AnimeInfoBinary.MAGIC || buffer.getInt(4) != AnimeInfoBinary.VERSION) {
+                return animeInfoList;
+            }
+
+            int count = buffer.getInt(8);
+            int offset = AnimeInfoBinary.HEADER_LENGTH;
+            for(int i = 0; i < count; i++) {
+                int titleLength = buffer.getInt(offset);
+                if(titleLength < 0) {
+                    break;
                 }
+                String title = getString(buffer, offset + 4, titleLength);
+                offset += 4 + titleLength;
 
-                // if we reach the end of an AnimeInfo element, we add it to the list
-                if(event.isEndElement()) {
-                    EndElement endElement = event.asEndElement();
+                long recordOffset = buffer.getLong(offset);
+                int recordLength = buffer.getInt(offset + 8);
+                offset += 8 + 4;
 
-                    if(endElement.getName().getLocalPart().equals(ANIME_INFO)) {
-                        animeInfoList.put(animeInfo.getTitle(), animeInfo);
-                    }
+                // do not make views of records that are not all there
+                if(recordOffset < 0 || recordLength < 0 || recordOffset + recordLength > buffer.capacity()) {
+                    break;
                 }
+
+                animeInfoList.put(title, new MappedAnimeInfo(buffer, (int) recordOffset, title));
             }
+        }
+        catch(IndexOutOfBoundsException e) { // a truncated index
+        }
+
+        return animeInfoList;
+    }
 
-            eventReader.close();
-            inputStream.close();
+    /**
+     * Streams the AnimeInfos of a file one at a time, without loading them all into memory.
+     * The file can either be XML or the binary format. AnimeInfos come in file order, so a title in the file twice
+     * comes twice. The stream should be closed when done.
+     * A file that can not be read or parsed to the end never looks like a shorter file, the stream throws instead.
+     *
+     * @param fileLocation the file location
+     * @return the AnimeInfos in the file
+     * @throws UncheckedIOException if the file can not be opened, or later from the stream if it can not be read or
+     *                              parsed any further
+     */
+    public static Stream<AnimeInfo> stream(String fileLocation) {
+        final InputStream inputStream;
+        try {
+            inputStream = new BufferedInputStream(new FileInputStream(fileLocation), 64 * 1024);
         }
         catch(FileNotFoundException e) {
+            throw new UncheckedIOException(e);
         }
-        catch(XMLStreamException e) {
+
+        Iterator<AnimeInfo> iterator;
+        if(AnimeInfoBinary.isBinaryFile(fileLocation)) {
+            iterator = new BinaryIterator(new DataInputStream(inputStream));
         }
-        catch(IOException e) {
+        else {
+            try {
+                iterator = new XMLIterator(createStreamReader(inputStream));
+            }
+            catch(XMLStreamException e) {
+                try {
+                    inputStream.close();
+                }
+                catch(IOException closeException) {
+                }
+
+                throw new UncheckedIOException(new IOException("could not parse " + fileLocation, e));
+            }
         }
 
-        return animeInfoList;
+        Spliterator<AnimeInfo> spliterator =
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    inputStream.close();
+                }
+                catch(IOException e) {
+                }
+            }
+        });
     }
 
     /**
-     * Gets the string of an event.
+     * Decodes a UTF-8 string from a buffer without moving it.
      *
-     * @param event the event
+     * @param buffer the buffer
+     * @param offset the offset of the string
+     * @param length the length of the string in bytes
      * @return the string
      */
-    private static String getString(XMLEvent event) {
-        // make sure event has something in it
-        if(event != null && event.isCharacters()) {
-            return event.asCharacters().getData();
+    private static String getString(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        byte[] bytes = new byte[length];
+        duplicate.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes a stream reader that reads text split by the parser as a whole.
+     *
+     * @param inputStream the UTF-8 input
+     * @return the stream reader
+     * @throws XMLStreamException on XMLStreamException
+     */
+    private static XMLStreamReader createStreamReader(InputStream inputStream) throws XMLStreamException {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+        return inputFactory.createXMLStreamReader(inputStream, "UTF-8");
+    }
+
+    /**
+     * Reads up to the end of the next AnimeInfo element.
+     *
+     * @param streamReader the stream reader
+     * @return the AnimeInfo, otherwise null at the end of the document
+     * @throws XMLStreamException on XMLStreamException
+     */
+    private static AnimeInfo readAnimeInfo(XMLStreamReader streamReader) throws XMLStreamException {
+        AnimeInfo animeInfo = null;
+        while(streamReader.hasNext()) {
+            int eventType = streamReader.next();
+
+            if(eventType == XMLStreamConstants.START_ELEMENT) {
+                String name = getName(streamReader);
+
+                // if we have an AnimeInfo element, we create a new AnimeInfo
+                if(name == ANIME_INFO) {
+                    animeInfo = new AnimeInfo();
+
+                    continue;
+                }
+
+                // fields outside of an AnimeInfo and unknown elements are skipped
+                if(animeInfo == null || name == null) {
+                    continue;
+                }
+
+                // the whole text of the field, even if the parser split it up
+                String text = streamReader.getElementText();
+                if(name == TITLE) {
+                    animeInfo.setTitle(text);
+                }
+                else if(name == TITLES) {
+                    animeInfo.setTitles(text);
+                }
+                else if(name == CATEGORY) {
+                    animeInfo.setCategory(text);
+                }
+                else if(name == LINK) {
+                    animeInfo.setLink(text);
+                }
+                else if(name == DATES) {
+                    animeInfo.setDates(text);
+                }
+                else if(name == TAGS) {
+                    animeInfo.setTags(text);
+                }
+                else if(name == SYNOPSIS) {
+                    animeInfo.setSynopsis(text);
+                }
+                else if(name == ABSENT) {
+                    animeInfo.setAbsentFields(text);
+                }
+                else if(name == CHECKED) {
+                    if(text.matches("\\d{1,18}")) {
+                        animeInfo.setLastChecked(Long.parseLong(text));
+                    }
+                }
+                else if(name == CHECKS) {
+                    if(text.matches("\\d{1,9}")) {
+                        animeInfo.setChecks(Integer.parseInt(text));
+                    }
+                }
+            }
+            // if we reach the end of an AnimeInfo element, it is done
+            else if(eventType == XMLStreamConstants.END_ELEMENT) {
+                if(animeInfo != null && getName(streamReader) == ANIME_INFO) {
+                    return animeInfo;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the name of the current element as one of the interned element name constants.
+     * The constants can then be compared by reference instead of comparing strings for each element.
+     *
+     * @param streamReader the stream reader on a start or end element
+     * @return the element name constant, otherwise null for an unknown element
+     */
+    private static String getName(XMLStreamReader streamReader) {
+        return ELEMENT_NAME_MAP.get(streamReader.getLocalName());
+    }
+
+    /**
+     * Checks that the XML declaration before the elements either names UTF-8 or no encoding, the chunks are read as UTF-8.
+     *
+     * @param buffer the file
+     * @param end    the end of the prolog
+     * @return true if the file is UTF-8
+     */
+    private static boolean isUTF8(ByteBuffer buffer, int end) {
+        String prolog = getString(buffer, 0, end);
+        int encodingIndex = prolog.indexOf("encoding=");
+
+        return encodingIndex == -1 || prolog.regionMatches(true, encodingIndex + "encoding=".length() + 1, "UTF-8", 0, 5);
+    }
+
+    /**
+     * Finds bytes in a buffer.
+     *
+     * @param buffer    the buffer
+     * @param bytes     the bytes
+     * @param fromIndex the index to start at
+     * @return the index of the bytes, otherwise -1
+     */
+    private static int indexOf(ByteBuffer buffer, byte[] bytes, int fromIndex) {
+        int last = buffer.limit() - bytes.length;
+        for(int i = fromIndex; i <= last; i++) {
+            if(matches(buffer, bytes, i)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Finds the last occurrence of bytes in a buffer.
+     *
+     * @param buffer the buffer
+     * @param bytes  the bytes
+     * @return the index of the bytes, otherwise -1
+     */
+    private static int lastIndexOf(ByteBuffer buffer, byte[] bytes) {
+        for(int i = buffer.limit() - bytes.length; i >= 0; i--) {
+            if(matches(buffer, bytes, i)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean matches(ByteBuffer buffer, byte[] bytes, int index) {
+        for(int j = 0; j < bytes.length; j++) {
+            if(buffer.get(index + j) != bytes[j]) {
+                return false;
+            }
         }
 
-        return "";
+        return true;
+    }
+
+    /**
+     * Parses a range of chunks, splitting the range in half until there is a single chunk.
+     * Results are merged left to right so later entries replace earlier ones, just like a sequential load.
+     */
+    private static class ChunkTask extends RecursiveTask<Map<String, AnimeInfo>> {
+        private static final long serialVersionUID = 1L;
+        private final ByteBuffer buffer;
+        private final List<Integer> chunkStartList;
+        private final int from, to;
+
+        /**
+         * Makes a task for the chunks from an index to an index.
+         *
+         * @param buffer         the file
+         * @param chunkStartList the start of each chunk followed by the end of the last chunk
+         * @param from           the first chunk
+         * @param to             the chunk after the last chunk
+         */
+        private ChunkTask(ByteBuffer buffer, List<Integer> chunkStartList, int from, int to) {
+            this.buffer = buffer;
+            this.chunkStartList = chunkStartList;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Parses the chunks.
+         *
+         * @return the AnimeInfos of the chunks, otherwise null if a chunk could not be parsed
+         */
+        @Override
+        protected Map<String, AnimeInfo> compute() {
+            if(to - from == 1) {
+                return parseChunk(chunkStartList.get(from), chunkStartList.get(to));
+            }
+
+            int mid = (from + to) >>> 1;
+            ChunkTask leftTask = new ChunkTask(buffer, chunkStartList, from, mid);
+            leftTask.fork();
+            Map<String, AnimeInfo> rightList = new ChunkTask(buffer, chunkStartList, mid, to).compute();
+            Map<String, AnimeInfo> leftList = leftTask.join();
+            if(leftList == null || rightList == null) {
+                return null;
+            }
+
+            leftList.putAll(rightList);
+
+            return leftList;
+        }
+
+        /**
+         * Parses a chunk wrapped in a root element.
+         *
+         * @param start the start of the chunk
+         * @param end   the end of the chunk
+         * @return the AnimeInfos of the chunk, otherwise null if it could not be parsed
+         */
+        private Map<String, AnimeInfo> parseChunk(int start, int end) {
+            ByteBuffer chunk = buffer.duplicate();
+            chunk.limit(end);
+            chunk.position(start);
+
+            InputStream inputStream = new SequenceInputStream(new ByteArrayInputStream(CHUNK_START),
+                    new SequenceInputStream(new ByteBufferInputStream(chunk), new ByteArrayInputStream(ANIME_INFOS_END)));
+
+            Map<String, AnimeInfo> animeInfoList = new TreeMap<>();
+            try {
+                XMLStreamReader streamReader = createStreamReader(inputStream);
+
+                AnimeInfo animeInfo;
+                while((animeInfo = readAnimeInfo(streamReader)) != null) {
+                    animeInfoList.put(animeInfo.getTitle(), animeInfo);
+                }
+
+                streamReader.close();
+            }
+            catch(XMLStreamException e) {
+                return null;
+            }
+
+            return animeInfoList;
+        }
+    }
+
+    /**
+     * Iterates over AnimeInfos read one ahead, throwing UncheckedIOException at the first one that can not be read.
+     */
+    private abstract static class AnimeInfoIterator implements Iterator<AnimeInfo> {
+        private AnimeInfo nextAnimeInfo;
+        private boolean done;
+
+        /**
+         * Reads the next AnimeInfo.
+         *
+         * @return the AnimeInfo, otherwise null at the end
+         * @throws IOException        on IOException
+         * @throws XMLStreamException on XMLStreamException
+         */
+        protected abstract AnimeInfo read() throws IOException, XMLStreamException;
+
+        @Override
+        public boolean hasNext() {
+            if(nextAnimeInfo == null && !done) {
+                try {
+                    nextAnimeInfo = read();
+                }
+                catch(IOException e) {
+                    done = true;
+
+                    throw new UncheckedIOException(e);
+                }
+                catch(XMLStreamException e) {
+                    done = true;
+
+                    throw new UncheckedIOException(new IOException(e));
+                }
+
+                done = nextAnimeInfo == null;
+            }
+
+            return nextAnimeInfo != null;
+        }
+
+        @Override
+        public AnimeInfo next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            AnimeInfo animeInfo = nextAnimeInfo;
+            nextAnimeInfo = null;
+
+            return animeInfo;
+        }
+    }
+
+    private static class XMLIterator extends AnimeInfoIterator {
+        private final XMLStreamReader streamReader;
+
+        private XMLIterator(XMLStreamReader streamReader) {
+            this.streamReader = streamReader;
+        }
+
+        @Override
+        protected AnimeInfo read() throws XMLStreamException {
+            return readAnimeInfo(streamReader);
+        }
+    }
+
+    private static class BinaryIterator extends AnimeInfoIterator {
+        private final DataInputStream dataInputStream;
+        private int remaining = -1;
+
+        private BinaryIterator(DataInputStream dataInputStream) {
+            this.dataInputStream = dataInputStream;
+        }
+
+        @Override
+        protected AnimeInfo read() throws IOException {
+            // read the header and skip the index first
+            if(remaining == -1) {
+                if(dataInputStream.readInt() != AnimeInfoBinary.MAGIC ||
+                        dataInputStream.readInt() != AnimeInfoBinary.VERSION) {
+                    throw new IOException("not a binary AnimeInfo file of version " + AnimeInfoBinary.VERSION);
+                }
+
+                remaining = dataInputStream.readInt();
+                long toSkip = dataInputStream.readLong() - AnimeInfoBinary.HEADER_LENGTH;
+                while(toSkip > 0) {
+                    long skipped = dataInputStream.skip(toSkip);
+                    if(skipped <= 0) {
+                        throw new EOFException("the index is cut off");
+                    }
+                    toSkip -= skipped;
+                }
+            }
+
+            if(remaining == 0) {
+                return null;
+            }
+
+            remaining--;
+
+            return AnimeInfoBinary.readAnimeInfo(dataInputStream);
+        }
+    }
+
+    /**
+     * Reads the remaining bytes of a buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if(len == 0) {
+                return 0;
+            }
+            if(!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int chunk = Math.min(len, buffer.remaining());
+            buffer.get(b, off, chunk);
+
+            return chunk;
+        }
     }
-} 
+}
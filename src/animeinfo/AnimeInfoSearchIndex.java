@@ -0,0 +1,367 @@
+package animeinfo;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * An inverted index over the titles, tags and synopses of AnimeInfos.
+ * Words in titles count more than words in tags, which count more than words in the synopsis,
+ * and rare words count more than common ones. Every word of a query has to match, the last one can match as a prefix.
+ */
+public class AnimeInfoSearchIndex {
+    public static final float TITLE_WEIGHT = 4, TAG_WEIGHT = 2, SYNOPSIS_WEIGHT = 1;
+    public static final float PREFIX_WEIGHT = 0.5f;
+    private final TreeMap<String, Postings> termToPostingsMap;
+    private final Map<String, Integer> titleToDocMap;
+    private final List<String> docTitleList;
+    private final List<String[]> docTermsList;
+    private final List<float[]> docWeightsList;
+    private final List<Integer> freeDocList;
+
+    /**
+     * Makes an empty index.
+     */
+    public AnimeInfoSearchIndex() {
+        termToPostingsMap = new TreeMap<>();
+        titleToDocMap = new HashMap<>();
+        docTitleList = new ArrayList<>();
+        docTermsList = new ArrayList<>();
+        docWeightsList = new ArrayList<>();
+        freeDocList = new ArrayList<>();
+    }
+
+    /**
+     * Adds an AnimeInfo to the index, replacing any AnimeInfo with the same title.
+     *
+     * @param animeInfo the AnimeInfo
+     */
+    public synchronized void put(AnimeInfo animeInfo) {
+        String title = animeInfo.getTitle();
+        remove(title);
+
+        Map<String, Float> termToWeightMap = new HashMap<>();
+        addTerms(termToWeightMap, animeInfo.getTitle(), TITLE_WEIGHT);
+        addTerms(termToWeightMap, animeInfo.getTitles(), TITLE_WEIGHT);
+        addTerms(termToWeightMap, animeInfo.getTags(), TAG_WEIGHT);
+        addTerms(termToWeightMap, animeInfo.getSynopsis(), SYNOPSIS_WEIGHT);
+
+        // the doc's own terms are kept sorted to check a doc for a word without going through the postings
+        String[] terms = termToWeightMap.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        float[] weights = new float[terms.length];
+        for(int i = 0; i < terms.length; i++) {
+            weights[i] = termToWeightMap.get(terms[i]);
+        }
+
+        // reuse the doc of a removed AnimeInfo if there is one
+        int doc;
+        if(freeDocList.isEmpty()) {
+            doc = docTitleList.size();
+            docTitleList.add(title);
+            docTermsList.add(terms);
+            docWeightsList.add(weights);
+        }
+        else {
+            doc = freeDocList.remove(freeDocList.size() - 1);
+            docTitleList.set(doc, title);
+            docTermsList.set(doc, terms);
+            docWeightsList.set(doc, weights);
+        }
+        titleToDocMap.put(title, doc);
+
+        for(Map.Entry<String, Float> termAndWeight : termToWeightMap.entrySet()) {
+            Postings postings = termToPostingsMap.get(termAndWeight.getKey());
+            if(postings == null) {
+                postings = new Postings();
+                termToPostingsMap.put(termAndWeight.getKey(), postings);
+            }
+            postings.add(doc, termAndWeight.getValue());
+        }
+    }
+
+    /**
+     * Removes an AnimeInfo from the index.
+     *
+     * @param title the title of the AnimeInfo
+     */
+    public synchronized void remove(String title) {
+        Integer doc = titleToDocMap.remove(title);
+        if(doc == null) {
+            return;
+        }
+
+        for(String term : docTermsList.get(doc)) {
+            Postings postings = termToPostingsMap.get(term);
+            postings.remove(doc);
+            if(postings.size == 0) {
+                termToPostingsMap.remove(term);
+            }
+        }
+
+        docTitleList.set(doc, null);
+        docTermsList.set(doc, null);
+        docWeightsList.set(doc, null);
+        freeDocList.add(doc);
+    }
+
+    /**
+     * Gets the number of AnimeInfos in the index.
+     *
+     * @return the number of AnimeInfos
+     */
+    public synchronized int size() {
+        return titleToDocMap.size();
+    }
+
+    /**
+     * Searches the index.
+     *
+     * @param query the words to search for, the last word also matches longer words it is the start of
+     * @param limit the most titles to return
+     * @return the titles of the best matches, best first
+     */
+    public synchronized List<String> search(String query, int limit) {
+        final List<String> queryTermList = tokenize(query);
+        if(queryTermList.isEmpty() || limit <= 0) {
+            return new ArrayList<>();
+        }
+
+        // start from the word in the fewest docs, the other words are then only checked in those docs
+        int rarestIndex = -1, rarestCount = Integer.MAX_VALUE;
+        for(int i = 0; i < queryTermList.size(); i++) {
+            int count = 0;
+            for(Postings postings : getPostingsMap(queryTermList, i).values()) {
+                count += postings.size;
+            }
+            if(count < rarestCount) {
+                rarestIndex = i;
+                rarestCount = count;
+            }
+        }
+        if(rarestCount == 0) {
+            return new ArrayList<>();
+        }
+
+        Map<String, Float> termToIdfMap = new HashMap<>();
+        Map<Integer, Float> docToScoreMap = new HashMap<>();
+        String rarestQueryTerm = queryTermList.get(rarestIndex);
+        for(Map.Entry<String, Postings> termAndPostings : getPostingsMap(queryTermList, rarestIndex).entrySet()) {
+            Postings postings = termAndPostings.getValue();
+            float termScore = getScore(termToIdfMap, termAndPostings.getKey(), rarestQueryTerm);
+            for(int j = 0; j < postings.size; j++) {
+                float score = postings.weights[j] * termScore;
+                Float oldScore = docToScoreMap.get(postings.docs[j]);
+                if(oldScore == null || score > oldScore) { // the best prefix match counts
+                    docToScoreMap.put(postings.docs[j], score);
+                }
+            }
+        }
+
+        // keep the best matches, the worst of them on top to be replaced
+        PriorityQueue<DocScore> bestDocQueue = new PriorityQueue<>(limit + 1);
+        for(Map.Entry<Integer, Float> docAndScore : docToScoreMap.entrySet()) {
+            int doc = docAndScore.getKey();
+            float score = docAndScore.getValue();
+            for(int i = 0; i < queryTermList.size() && score >= 0; i++) {
+                if(i != rarestIndex) {
+                    float termScore = getDocScore(termToIdfMap, doc, queryTermList.get(i), i == queryTermList.size() - 1);
+                    score = termScore < 0 ? -1 : score + termScore;
+                }
+            }
+
+            if(score >= 0 && (bestDocQueue.size() < limit || score >= bestDocQueue.peek().score)) {
+                bestDocQueue.add(new DocScore(doc, score));
+                if(bestDocQueue.size() > limit) {
+                    bestDocQueue.remove();
+                }
+            }
+        }
+
+        List<String> titleList = new ArrayList<>();
+        while(!bestDocQueue.isEmpty()) {
+            titleList.add(bestDocQueue.remove().title);
+        }
+        Collections.reverse(titleList);
+
+        return titleList;
+    }
+
+    /**
+     * Gets the postings of a query word, the last word of a query also gets the postings of words it is the start of.
+     *
+     * @param queryTermList the query words
+     * @param index         the index of the word
+     * @return the postings of each matching word
+     */
+    private Map<String, Postings> getPostingsMap(List<String> queryTermList, int index) {
+        String queryTerm = queryTermList.get(index);
+        if(index == queryTermList.size() - 1) {
+            return termToPostingsMap.subMap(queryTerm, queryTerm + Character.MAX_VALUE);
+        }
+
+        Postings postings = termToPostingsMap.get(queryTerm);
+        if(postings == null) {
+            return Collections.emptyMap();
+        }
+
+        return Collections.singletonMap(queryTerm, postings);
+    }
+
+    /**
+     * Gets the score of a query word in a doc by looking through the doc's own sorted words.
+     *
+     * @param termToIdfMap the scores of the words so far in this search
+     * @param doc          the doc
+     * @param queryTerm    the query word
+     * @param prefix       true if longer words the query word is the start of also match
+     * @return the score, otherwise -1 if the doc does not have the word
+     */
+    private float getDocScore(Map<String, Float> termToIdfMap, int doc, String queryTerm, boolean prefix) {
+        String[] terms = docTermsList.get(doc);
+        float[] weights = docWeightsList.get(doc);
+
+        int i = Arrays.binarySearch(terms, queryTerm);
+        if(i >= 0) {
+            return weights[i] * getScore(termToIdfMap, terms[i], queryTerm);
+        }
+        if(!prefix) {
+            return -1;
+        }
+
+        float bestScore = -1;
+        for(i = -i - 1; i < terms.length && terms[i].startsWith(queryTerm); i++) {
+            bestScore = Math.max(bestScore, weights[i] * getScore(termToIdfMap, terms[i], queryTerm));
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Gets the score of a word for each unit of its weight in a doc, rarer words scoring higher.
+     *
+     * @param termToScoreMap the scores of the words so far in this search
+     * @param term           the word
+     * @param queryTerm      the query word it matched, either the same word or the start of it
+     * @return the score
+     */
+    private float getScore(Map<String, Float> termToScoreMap, String term, String queryTerm) {
+        Float score = termToScoreMap.get(term);
+        if(score == null) {
+            float idf = (float) Math.log(1 + (double) titleToDocMap.size() / termToPostingsMap.get(term).size);
+            score = idf * (term.length() == queryTerm.length() ? 1 : PREFIX_WEIGHT);
+            termToScoreMap.put(term, score);
+        }
+
+        return score;
+    }
+
+    /**
+     * Splits text into lower case words of letters and digits.
+     * The text is NFKC normalized first, so full width and half width forms give the same words.
+     *
+     * @param text the text
+     * @return the words
+     */
+    public static List<String> tokenize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+
+        List<String> tokenList = new ArrayList<>();
+        int tokenStart = -1;
+        for(int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if(wordChar && tokenStart == -1) {
+                tokenStart = i;
+            }
+            else if(!wordChar && tokenStart != -1) {
+                tokenList.add(normalized.substring(tokenStart, i));
+                tokenStart = -1;
+            }
+        }
+
+        return tokenList;
+    }
+
+    private static void addTerms(Map<String, Float> termToWeightMap, String text, float weight) {
+        for(String term : tokenize(text)) {
+            Float oldWeight = termToWeightMap.get(term);
+            termToWeightMap.put(term, oldWeight == null ? weight : oldWeight + weight);
+        }
+    }
+
+    /**
+     * A doc's score in a search, ordered worst first.
+     */
+    private class DocScore implements Comparable<DocScore> {
+        private final String title;
+        private final float score;
+
+        private DocScore(int doc, float score) {
+            this.title = docTitleList.get(doc);
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(DocScore docScore) {
+            int scoreCompare = Float.compare(score, docScore.score);
+            if(scoreCompare != 0) {
+                return scoreCompare;
+            }
+
+            return docScore.title.compareTo(title);
+        }
+    }
+
+    /**
+     * The docs a term is in with the term's weight in each.
+     * The docs are kept sorted so a doc is found by a binary search instead of a scan through a common term's postings.
+     */
+    private static class Postings {
+        private int[] docs = new int[2];
+        private float[] weights = new float[2];
+        private int size;
+
+        private void add(int doc, float weight) {
+            // a new doc gets the next id and goes at the end, only reused ids have to be put in between
+            int index = size;
+            if(size > 0 && docs[size - 1] > doc) {
+                index = Arrays.binarySearch(docs, 0, size, doc);
+                if(index >= 0) {
+                    weights[index] = weight;
+
+                    return;
+                }
+                index = -index - 1;
+            }
+
+            if(size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+
+            System.arraycopy(docs, index, docs, index + 1, size - index);
+            System.arraycopy(weights, index, weights, index + 1, size - index);
+            docs[index] = doc;
+            weights[index] = weight;
+            size++;
+        }
+
+        private void remove(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if(index < 0) {
+                return;
+            }
+
+            size--;
+            System.arraycopy(docs, index + 1, docs, index, size - index);
+            System.arraycopy(weights, index + 1, weights, index, size - index);
+        }
+    }
+}
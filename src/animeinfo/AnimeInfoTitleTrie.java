@@ -0,0 +1,287 @@
+package animeinfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable radix trie from the normalized aliases of AnimeInfos to their titles, for suggesting titles as they
+ * are typed.
+ * Adding or removing an AnimeInfo makes a new trie that shares every node off the changed paths with the old one,
+ * so a trie can be read by any number of threads while newer ones are made.
+ */
+public final class AnimeInfoTitleTrie {
+    public static final AnimeInfoTitleTrie EMPTY =
+            new AnimeInfoTitleTrie(new Node("", new char[0], new Node[0], new String[0]));
+    private final Node root;
+
+    private AnimeInfoTitleTrie(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Makes a trie with an AnimeInfo's aliases added.
+     *
+     * @param animeInfo the AnimeInfo
+     * @return the new trie
+     */
+    public AnimeInfoTitleTrie with(AnimeInfo animeInfo) {
+        Node newRoot = root;
+        for(String alias : AnimeInfoAliasIndex.getAliasList(animeInfo)) {
+            newRoot = put(newRoot, alias, 0, animeInfo.getTitle());
+        }
+
+        return newRoot == root ? this : new AnimeInfoTitleTrie(newRoot);
+    }
+
+    /**
+     * Makes a trie with an AnimeInfo's aliases removed.
+     *
+     * @param animeInfo the AnimeInfo
+     * @return the new trie
+     */
+    public AnimeInfoTitleTrie without(AnimeInfo animeInfo) {
+        Node newRoot = root;
+        for(String alias : AnimeInfoAliasIndex.getAliasList(animeInfo)) {
+            newRoot = remove(newRoot, alias, 0, animeInfo.getTitle(), true);
+        }
+
+        return newRoot == root ? this : new AnimeInfoTitleTrie(newRoot);
+    }
+
+    /**
+     * Suggests titles with an alias that starts with what has been typed so far.
+     * Titles whose alias is exactly what was typed come first, then the rest in alias order.
+     *
+     * @param prefix what has been typed, written any way
+     * @param limit  the most titles to suggest
+     * @return the titles
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String key = AnimeInfoAliasIndex.normalize(prefix);
+        Set<String> titleSet = new LinkedHashSet<>();
+        if(key.equals("") || limit <= 0) {
+            return new ArrayList<>(titleSet);
+        }
+
+        // walk down to the node the prefix ends in, possibly part way along its edge
+        Node node = root;
+        int i = 0;
+        while(i < key.length()) {
+            int childIndex = Arrays.binarySearch(node.chars, key.charAt(i));
+            if(childIndex < 0) {
+                return new ArrayList<>(titleSet);
+            }
+
+            Node child = node.children[childIndex];
+            int common = getCommonLength(child.label, key, i);
+            if(common < child.label.length() && i + common < key.length()) { // the prefix goes off the edge
+                return new ArrayList<>(titleSet);
+            }
+
+            node = child;
+            i += common;
+        }
+
+        collect(node, titleSet, limit);
+
+        return new ArrayList<>(titleSet);
+    }
+
+    /**
+     * Collects the titles under a node, the node's own titles first.
+     *
+     * @param node     the node
+     * @param titleSet the titles so far
+     * @param limit    the most titles to collect
+     */
+    private static void collect(Node node, Set<String> titleSet, int limit) {
+        for(String title : node.titles) {
+            if(titleSet.size() >= limit) {
+                return;
+            }
+            titleSet.add(title);
+        }
+
+        for(Node child : node.children) {
+            if(titleSet.size() >= limit) {
+                return;
+            }
+            collect(child, titleSet, limit);
+        }
+    }
+
+    /**
+     * Puts a title under a key, copying the nodes on the key's path.
+     *
+     * @param node  the node, whose label has been matched
+     * @param key   the key
+     * @param i     the index in the key just after the node's label
+     * @param title the title
+     * @return the new node, or the same node if the title was already there
+     */
+    private static Node put(Node node, String key, int i, String title) {
+        if(i == key.length()) {
+            return node.withTitle(title);
+        }
+
+        int childIndex = Arrays.binarySearch(node.chars, key.charAt(i));
+        if(childIndex < 0) {
+            Node leaf = new Node(key.substring(i), new char[0], new Node[0], new String[]{title});
+
+            return node.withChild(-childIndex - 1, leaf);
+        }
+
+        Node child = node.children[childIndex];
+        int common = getCommonLength(child.label, key, i);
+        if(common < child.label.length()) {
+            // split the edge where the key leaves it
+            Node tail = new Node(child.label.substring(common), child.chars, child.children, child.titles);
+            child = new Node(child.label.substring(0, common), new char[]{tail.label.charAt(0)}, new Node[]{tail},
+                    new String[0]);
+        }
+
+        Node newChild = put(child, key, i + common, title);
+        if(newChild == node.children[childIndex]) {
+            return node;
+        }
+
+        return node.replaceChild(childIndex, newChild);
+    }
+
+    /**
+     * Removes a title from a key, copying the nodes on the key's path and merging nodes left with a single child.
+     *
+     * @param node  the node, whose label has been matched
+     * @param key   the key
+     * @param i     the index in the key just after the node's label
+     * @param title the title
+     * @param root  true if the node is the root, which is never removed or merged
+     * @return the new node, the same node if the title was not there, otherwise null if the node is now empty
+     */
+    private static Node remove(Node node, String key, int i, String title, boolean root) {
+        Node newNode;
+        if(i == key.length()) {
+            newNode = node.withoutTitle(title);
+        }
+        else {
+            int childIndex = Arrays.binarySearch(node.chars, key.charAt(i));
+            if(childIndex < 0) {
+                return node;
+            }
+
+            Node child = node.children[childIndex];
+            if(!key.startsWith(child.label, i)) {
+                return node;
+            }
+
+            Node newChild = remove(child, key, i + child.label.length(), title, false);
+            if(newChild == child) {
+                return node;
+            }
+
+            newNode = newChild == null ? node.withoutChild(childIndex) : node.replaceChild(childIndex, newChild);
+        }
+
+        if(root || newNode.titles.length > 0) {
+            return newNode;
+        }
+        if(newNode.children.length == 0) {
+            return null;
+        }
+        if(newNode.children.length == 1) {
+            Node child = newNode.children[0];
+
+            return new Node(newNode.label + child.label, child.chars, child.children, child.titles);
+        }
+
+        return newNode;
+    }
+
+    private static int getCommonLength(String label, String key, int i) {
+        int common = 0;
+        while(common < label.length() && i + common < key.length() && label.charAt(common) == key.charAt(i + common)) {
+            common++;
+        }
+
+        return common;
+    }
+
+    /**
+     * A node with the label of the edge into it, its children sorted by the first character of their labels,
+     * and the titles of the key ending at it.
+     */
+    private static final class Node {
+        private final String label;
+        private final char[] chars;
+        private final Node[] children;
+        private final String[] titles;
+
+        private Node(String label, char[] chars, Node[] children, String[] titles) {
+            this.label = label;
+            this.chars = chars;
+            this.children = children;
+            this.titles = titles;
+        }
+
+        private Node withTitle(String title) {
+            for(String oldTitle : titles) {
+                if(oldTitle.equals(title)) {
+                    return this;
+                }
+            }
+
+            String[] newTitles = Arrays.copyOf(titles, titles.length + 1);
+            newTitles[titles.length] = title;
+
+            return new Node(label, chars, children, newTitles);
+        }
+
+        private Node withoutTitle(String title) {
+            for(int i = 0; i < titles.length; i++) {
+                if(titles[i].equals(title)) {
+                    String[] newTitles = new String[titles.length - 1];
+                    System.arraycopy(titles, 0, newTitles, 0, i);
+                    System.arraycopy(titles, i + 1, newTitles, i, titles.length - i - 1);
+
+                    return new Node(label, chars, children, newTitles);
+                }
+            }
+
+            return this;
+        }
+
+        private Node withChild(int index, Node child) {
+            char[] newChars = new char[chars.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(chars, 0, newChars, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChars[index] = child.label.charAt(0);
+            newChildren[index] = child;
+            System.arraycopy(chars, index, newChars, index + 1, chars.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+
+            return new Node(label, newChars, newChildren, titles);
+        }
+
+        private Node replaceChild(int index, Node child) {
+            Node[] newChildren = children.clone();
+            newChildren[index] = child;
+
+            return new Node(label, chars, newChildren, titles);
+        }
+
+        private Node withoutChild(int index) {
+            char[] newChars = new char[chars.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(chars, 0, newChars, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(chars, index + 1, newChars, index, chars.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+
+            return new Node(label, newChars, newChildren, titles);
+        }
+    }
+}
@@ -1,9 +1,19 @@
 package animeinfo;
 
+import tool.AtomicFileOutputStream;
+
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
-import java.io.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -12,7 +22,8 @@ import java.util.Map;
 public class AnimeInfoWriter {
     public static final String SEPARATOR = System.getProperty("line.separator"), SPACING = "    ";
     public static final String ANIME_INFOS = "animeInfos", ANIME_INFO = "animeInfo", TITLE = "title", TITLES = "titles",
-            CATEGORY = "category", LINK = "link", DATES = "dates", TAGS = "tags", SYNOPSIS = "synopsis";
+            CATEGORY = "category", LINK = "link", DATES = "dates", TAGS = "tags", SYNOPSIS = "synopsis",
+            ABSENT = "absent", CHECKED = "checked", CHECKS = "checks";
 
     /**
      * Do not allow objects of this class to be made.
@@ -22,18 +33,42 @@ public class AnimeInfoWriter {
 
     /**
      * Saves a list of AnimeInfos to a given file location.
+     * A location ending with the binary extension (.aib) is saved in the binary format, otherwise as XML.
      *
      * @param fileLocation  the file location
      * @param animeInfoList the list of AnimeInfos
      * @return true on success
      */
     public static boolean save(String fileLocation, Map<String, AnimeInfo> animeInfoList) {
+        if(AnimeInfoBinary.isBinaryLocation(fileLocation)) {
+            return saveBinary(fileLocation, animeInfoList);
+        }
+
+        return write(fileLocation, animeInfoList.values().iterator());
+    }
+
+    /**
+     * Writes AnimeInfos to a given file location one at a time, without needing them all in memory.
+     * A location ending with the binary extension (.aib) is written in the binary format, otherwise as XML.
+     * Titles are written as they come, so a title given twice is written twice and the last one wins on load.
+     * The file is only replaced once every AnimeInfo has been written, so if the AnimeInfos throw part way,
+     * like a stream from AnimeInfoReader.stream failing to read its file, the exception comes out of here and the file
+     * is left untouched.
+     *
+     * @param fileLocation the file location
+     * @param animeInfos   the AnimeInfos
+     * @return true on success
+     */
+    public static boolean write(String fileLocation, Iterator<AnimeInfo> animeInfos) {
+        if(AnimeInfoBinary.isBinaryLocation(fileLocation)) {
+            return writeBinary(fileLocation, animeInfos);
+        }
+
         XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
 
-        try {
-            OutputStream outputStream = new FileOutputStream(fileLocation);
-            BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
-            XMLStreamWriter streamWriter = outputFactory.createXMLStreamWriter(bufferedOutputStream, "UTF-8");
+        // write to a temp file that only replaces the file once everything is on disk
+        try(AtomicFileOutputStream outputStream = new AtomicFileOutputStream(fileLocation)) {
+            XMLStreamWriter streamWriter = outputFactory.createXMLStreamWriter(outputStream, "UTF-8");
 
             streamWriter.writeStartDocument("UTF-8", "1.0");
             streamWriter.writeDTD(SEPARATOR);
@@ -41,8 +76,8 @@ public class AnimeInfoWriter {
             streamWriter.writeStartElement(ANIME_INFOS);
             streamWriter.writeDTD(SEPARATOR);
 
-            for(AnimeInfo animeInfo : animeInfoList.values()) {
-                createNode(streamWriter, animeInfo);
+            while(animeInfos.hasNext()) {
+                createNode(streamWriter, animeInfos.next());
             }
 
             streamWriter.writeEndElement();
@@ -51,13 +86,10 @@ public class AnimeInfoWriter {
             streamWriter.writeEndDocument();
 
             streamWriter.close();
-            bufferedOutputStream.close();
-            outputStream.close();
+            outputStream.commit();
 
             return true;
         }
-        catch(FileNotFoundException e) {
-        }
         catch(XMLStreamException e) {
         }
         catch(IOException e) {
@@ -66,6 +98,145 @@ public class AnimeInfoWriter {
         return false;
     }
 
+    /**
+     * Saves a list of AnimeInfos to a given file location in the binary format.
+     * The index holds each title with the offset and length of its record, so a single entry can be read without
+     * decoding the rest of the file.
+     *
+     * @param fileLocation  the file location
+     * @param animeInfoList the list of AnimeInfos
+     * @return true on success
+     */
+    public static boolean saveBinary(String fileLocation, Map<String, AnimeInfo> animeInfoList) {
+        // take a copy so the index and the records agree even if the map changes meanwhile
+        AnimeInfo[] animeInfos = animeInfoList.values().toArray(new AnimeInfo[0]);
+
+        // the record lengths are worked out up front so the index can come first
+        int[] recordLengths = new int[animeInfos.length];
+        long dataOffset = AnimeInfoBinary.HEADER_LENGTH;
+        for(int i = 0; i < animeInfos.length; i++) {
+            recordLengths[i] = AnimeInfoBinary.getRecordLength(animeInfos[i]);
+            dataOffset += AnimeInfoBinary.getStringLength(animeInfos[i].getTitle()) + 8 + 4;
+        }
+
+        try(AtomicFileOutputStream outputStream = new AtomicFileOutputStream(fileLocation)) {
+            DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+
+            dataOutputStream.writeInt(AnimeInfoBinary.MAGIC);
+            dataOutputStream.writeInt(AnimeInfoBinary.VERSION);
+            dataOutputStream.writeInt(animeInfos.length);
+            dataOutputStream.writeLong(dataOffset);
+
+            long recordOffset = dataOffset;
+            for(int i = 0; i < animeInfos.length; i++) {
+                AnimeInfoBinary.writeString(dataOutputStream, animeInfos[i].getTitle());
+                dataOutputStream.writeLong(recordOffset);
+                dataOutputStream.writeInt(recordLengths[i]);
+                recordOffset += recordLengths[i];
+            }
+
+            for(AnimeInfo animeInfo : animeInfos) {
+                AnimeInfoBinary.writeAnimeInfo(dataOutputStream, animeInfo);
+            }
+
+            dataOutputStream.flush();
+            outputStream.commit();
+
+            return true;
+        }
+        catch(IOException e) {
+        }
+
+        return false;
+    }
+
+    /**
+     * Writes AnimeInfos in the binary format one at a time.
+     * As the index comes before the records, the index and the records are first spilled to two temp files next to the
+     * file, which are then copied after the header once the size of the index is known.
+     *
+     * @param fileLocation the file location
+     * @param animeInfos   the AnimeInfos
+     * @return true on success
+     */
+    private static boolean writeBinary(String fileLocation, Iterator<AnimeInfo> animeInfos) {
+        Path directory = new File(fileLocation).getAbsoluteFile().toPath().getParent();
+        Path indexPath = null, recordPath = null;
+        try {
+            indexPath = Files.createTempFile(directory, "index", ".tmp");
+            recordPath = Files.createTempFile(directory, "records", ".tmp");
+
+            // spill the index with offsets from the start of the records
+            int count = 0;
+            try(DataOutputStream indexOutputStream = newDataOutputStream(indexPath);
+                DataOutputStream recordOutputStream = newDataOutputStream(recordPath)) {
+                long recordOffset = 0;
+                while(animeInfos.hasNext()) {
+                    AnimeInfo animeInfo = animeInfos.next();
+                    int recordLength = AnimeInfoBinary.getRecordLength(animeInfo);
+
+                    AnimeInfoBinary.writeString(indexOutputStream, animeInfo.getTitle());
+                    indexOutputStream.writeLong(recordOffset);
+                    indexOutputStream.writeInt(recordLength);
+                    AnimeInfoBinary.writeAnimeInfo(recordOutputStream, animeInfo);
+
+                    recordOffset += recordLength;
+                    count++;
+                }
+            }
+
+            long dataOffset = AnimeInfoBinary.HEADER_LENGTH + Files.size(indexPath);
+            try(AtomicFileOutputStream outputStream = new AtomicFileOutputStream(fileLocation);
+                DataInputStream indexInputStream = newDataInputStream(indexPath)) {
+                DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+
+                dataOutputStream.writeInt(AnimeInfoBinary.MAGIC);
+                dataOutputStream.writeInt(AnimeInfoBinary.VERSION);
+                dataOutputStream.writeInt(count);
+                dataOutputStream.writeLong(dataOffset);
+
+                // the index again, now with offsets from the start of the file
+                for(int i = 0; i < count; i++) {
+                    AnimeInfoBinary.writeString(dataOutputStream, AnimeInfoBinary.readString(indexInputStream));
+                    dataOutputStream.writeLong(dataOffset + indexInputStream.readLong());
+                    dataOutputStream.writeInt(indexInputStream.readInt());
+                }
+
+                dataOutputStream.flush();
+                Files.copy(recordPath, outputStream);
+                outputStream.commit();
+
+                return true;
+            }
+        }
+        catch(IOException e) {
+        }
+        finally {
+            deleteQuietly(indexPath);
+            deleteQuietly(recordPath);
+        }
+
+        return false;
+    }
+
+    private static DataOutputStream newDataOutputStream(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024));
+    }
+
+    private static DataInputStream newDataInputStream(Path path) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 64 * 1024));
+    }
+
+    private static void deleteQuietly(Path path) {
+        if(path != null) {
+            try {
+                Files.deleteIfExists(path);
+            }
+            catch(IOException e) {
+            }
+        }
+    }
+
     /**
      * Creates a node.
      *
@@ -85,6 +256,9 @@ public class AnimeInfoWriter {
         createCDataNode(streamWriter, DATES, animeInfo.getDates());
         createCDataNode(streamWriter, TAGS, animeInfo.getTags());
         createCDataNode(streamWriter, SYNOPSIS, animeInfo.getSynopsis());
+        createCDataNode(streamWriter, ABSENT, animeInfo.getAbsentFields());
+        createCDataNode(streamWriter, CHECKED, String.valueOf(animeInfo.getLastChecked()));
+        createCDataNode(streamWriter, CHECKS, String.valueOf(animeInfo.getChecks()));
 
         streamWriter.writeCharacters(SPACING);
         streamWriter.writeEndElement();
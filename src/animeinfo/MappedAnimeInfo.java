@@ -0,0 +1,244 @@
+package animeinfo;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * An AnimeInfo that is a view of a record in a memory mapped binary AnimeInfo file.
+ * Only the title is kept on the heap, every other field is decoded from the mapped file each time it is asked for.
+ * The first setter called copies the record to the heap, and from then on the copy is read and changed instead.
+ */
+class MappedAnimeInfo extends AnimeInfo {
+    private static final int TITLES = 1, CATEGORY = 2, LINK = 3, DATES = 4, TAGS = 5, SYNOPSIS = 6, ABSENT = 7;
+    private static final int STRING_FIELDS = 8;
+    private final int recordOffset;
+    private final String title;
+    private ByteBuffer buffer;
+    private AnimeInfo copy;
+
+    /**
+     * Makes a view of a record.
+     *
+     * @param buffer       the mapped file, only read with absolute gets or through duplicates so it can be shared
+     * @param recordOffset the offset of the record in the file
+     * @param title        the title from the index
+     */
+    MappedAnimeInfo(ByteBuffer buffer, int recordOffset, String title) {
+        this.buffer = buffer;
+        this.recordOffset = recordOffset;
+        this.title = title;
+    }
+
+    /**
+     * Copies views to the heap and unmaps the file they are views of, so the file can be replaced.
+     * Every view of the file must be given, since reading one that was left out after this would crash.
+     *
+     * @param animeInfos the views of a mapped file, other AnimeInfos are skipped
+     */
+    static void release(Collection<? extends AnimeInfo> animeInfos) {
+        ByteBuffer buffer = null;
+        for(AnimeInfo animeInfo : animeInfos) {
+            if(animeInfo instanceof MappedAnimeInfo) {
+                MappedAnimeInfo mappedAnimeInfo = (MappedAnimeInfo) animeInfo;
+                synchronized(mappedAnimeInfo) {
+                    if(mappedAnimeInfo.buffer != null) {
+                        buffer = mappedAnimeInfo.buffer;
+                    }
+                    mappedAnimeInfo.getCopy();
+                }
+            }
+        }
+
+        if(buffer != null) {
+            unmap(buffer);
+        }
+    }
+
+    /**
+     * Unmaps a mapped file right away instead of whenever its buffer is garbage collected, which is needed to replace
+     * the file on Windows. There is no public way to do this, so it is left to the garbage collector if it fails.
+     *
+     * @param buffer the mapped file, which must not be read again
+     */
+    private static void unmap(ByteBuffer buffer) {
+        try {
+            try { // java 9 and later
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field unsafeField = unsafeClass.getDeclaredField("theUnsafe");
+                unsafeField.setAccessible(true);
+                unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(unsafeField.get(null), buffer);
+            }
+            catch(NoSuchMethodException e) { // java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+        catch(ReflectiveOperationException | RuntimeException e) {
+        }
+    }
+
+    /**
+     * Gets the heap copy of the record, making it first if needed.
+     * Only called while holding this view's lock.
+     *
+     * @return the copy
+     */
+    private AnimeInfo getCopy() {
+        if(copy == null) {
+            AnimeInfo animeInfo = new AnimeInfo();
+            animeInfo.setTitle(title);
+            animeInfo.setTitles(getString(TITLES));
+            animeInfo.setCategory(getString(CATEGORY));
+            animeInfo.setLink(getString(LINK));
+            animeInfo.setDates(getString(DATES));
+            animeInfo.setTags(getString(TAGS));
+            animeInfo.setSynopsis(getString(SYNOPSIS));
+            animeInfo.setAbsentFields(getString(ABSENT));
+            animeInfo.setLastChecked(buffer.getLong(getFieldOffset(STRING_FIELDS)));
+            animeInfo.setChecks(buffer.getInt(getFieldOffset(STRING_FIELDS) + 8));
+
+            copy = animeInfo;
+            buffer = null;
+        }
+
+        return copy;
+    }
+
+    /**
+     * Gets the offset of a field by skipping the string fields before it.
+     *
+     * @param field the index of the field
+     * @return the offset of the field's length prefix, or of the check fields after the last string
+     */
+    private int getFieldOffset(int field) {
+        int offset = recordOffset;
+        for(int i = 0; i < field; i++) {
+            offset += 4 + buffer.getInt(offset);
+        }
+
+        return offset;
+    }
+
+    /**
+     * Decodes a string field.
+     *
+     * @param field the index of the field
+     * @return the string
+     */
+    private String getString(int field) {
+        int offset = getFieldOffset(field);
+        int length = buffer.getInt(offset);
+
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset + 4);
+        byte[] bytes = new byte[length];
+        duplicate.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized String getTitle() {
+        return copy != null ? copy.getTitle() : title;
+    }
+
+    @Override
+    public synchronized String getTitles() {
+        return copy != null ? copy.getTitles() : getString(TITLES);
+    }
+
+    @Override
+    public synchronized String getCategory() {
+        return copy != null ? copy.getCategory() : getString(CATEGORY);
+    }
+
+    @Override
+    public synchronized String getLink() {
+        return copy != null ? copy.getLink() : getString(LINK);
+    }
+
+    @Override
+    public synchronized String getDates() {
+        return copy != null ? copy.getDates() : getString(DATES);
+    }
+
+    @Override
+    public synchronized String getTags() {
+        return copy != null ? copy.getTags() : getString(TAGS);
+    }
+
+    @Override
+    public synchronized String getSynopsis() {
+        return copy != null ? copy.getSynopsis() : getString(SYNOPSIS);
+    }
+
+    @Override
+    public synchronized String getAbsentFields() {
+        return copy != null ? copy.getAbsentFields() : getString(ABSENT);
+    }
+
+    @Override
+    public synchronized long getLastChecked() {
+        return copy != null ? copy.getLastChecked() : buffer.getLong(getFieldOffset(STRING_FIELDS));
+    }
+
+    @Override
+    public synchronized int getChecks() {
+        return copy != null ? copy.getChecks() : buffer.getInt(getFieldOffset(STRING_FIELDS) + 8);
+    }
+
+    @Override
+    public synchronized void setTitle(String title) {
+        getCopy().setTitle(title);
+    }
+
+    @Override
+    public synchronized void setTitles(String titles) {
+        getCopy().setTitles(titles);
+    }
+
+    @Override
+    public synchronized void setCategory(String category) {
+        getCopy().setCategory(category);
+    }
+
+    @Override
+    public synchronized void setLink(String link) {
+        getCopy().setLink(link);
+    }
+
+    @Override
+    public synchronized void setDates(String dates) {
+        getCopy().setDates(dates);
+    }
+
+    @Override
+    public synchronized void setTags(String tags) {
+        getCopy().setTags(tags);
+    }
+
+    @Override
+    public synchronized void setSynopsis(String synopsis) {
+        getCopy().setSynopsis(synopsis);
+    }
+
+    @Override
+    public synchronized void setAbsentFields(String absentFields) {
+        getCopy().setAbsentFields(absentFields);
+    }
+
+    @Override
+    public synchronized void setLastChecked(long lastChecked) {
+        getCopy().setLastChecked(lastChecked);
+    }
+
+    @Override
+    public synchronized void setChecks(int checks) {
+        getCopy().setChecks(checks);
+    }
+}
@@ -0,0 +1,128 @@
+package animeinfo;
+
+import tool.MarkerMatcher;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Extracts the fields of a page in a single pass over its lines using a compiled PageRuleSet.
+ * Only the parts of the page between a field's start and end are kept in memory.
+ */
+public class PageParser implements Consumer<String> {
+    public static final String SEPARATOR = System.getProperty("line.separator");
+    private final PageRuleSet ruleSet;
+    private final PageRule.Extraction[] extractions;
+    private final List<PageRule.Extraction> openExtractionList;
+    private final StartListener startListener;
+    private int unstartedCount;
+    private boolean finished;
+
+    /**
+     * Makes a parser for one page.
+     *
+     * @param ruleSet the rules of the fields to extract
+     */
+    public PageParser(PageRuleSet ruleSet) {
+        this.ruleSet = ruleSet;
+        extractions = new PageRule.Extraction[ruleSet.getRuleList().size()];
+        openExtractionList = new ArrayList<>();
+        startListener = new StartListener();
+        unstartedCount = extractions.length;
+        finished = false;
+    }
+
+    /**
+     * Parses the next line of the page.
+     *
+     * @param line the line, without its line separator
+     */
+    @Override
+    public void accept(String line) {
+        // continue the fields we are in
+        Iterator<PageRule.Extraction> openExtractionIterator = openExtractionList.iterator();
+        while(openExtractionIterator.hasNext()) {
+            if(openExtractionIterator.next().append(SEPARATOR + line)) {
+                openExtractionIterator.remove();
+            }
+        }
+
+        // start the fields whose start marker is on this line
+        if(unstartedCount > 0) {
+            startListener.line = line;
+            ruleSet.getStartMatcher().match(line, startListener);
+        }
+    }
+
+    /**
+     * Finishes parsing once the whole page has been given, closing any field that reached the end of the page.
+     */
+    public void finish() {
+        if(finished) {
+            return;
+        }
+        finished = true;
+
+        for(PageRule.Extraction extraction : openExtractionList) {
+            extraction.finish();
+        }
+        openExtractionList.clear();
+    }
+
+    /**
+     * Gets the values of a field.
+     *
+     * @param name the name of the field's rule
+     * @return the values, empty if the field was not found
+     */
+    public List<String> getValueList(String name) {
+        int index = ruleSet.getIndex(name);
+        if(index == -1) {
+            throw new IllegalArgumentException("no rule named: " + name);
+        }
+
+        List<String> valueList = new ArrayList<>();
+        if(extractions[index] != null) {
+            valueList.addAll(extractions[index].getValueList());
+        }
+
+        return valueList;
+    }
+
+    /**
+     * Gets the first value of a field.
+     *
+     * @param name the name of the field's rule
+     * @return the value, otherwise an empty string
+     */
+    public String getValue(String name) {
+        List<String> valueList = getValueList(name);
+
+        return valueList.isEmpty() ? "" : valueList.get(0);
+    }
+
+    /**
+     * Starts each field at the first occurrence of its start marker.
+     */
+    private class StartListener implements MarkerMatcher.MatchListener {
+        private String line;
+
+        @Override
+        public boolean match(int marker, int endIndex) {
+            if(extractions[marker] != null) {
+                return true;
+            }
+
+            PageRule.Extraction extraction = ruleSet.getRuleList().get(marker).newExtraction();
+            extractions[marker] = extraction;
+            unstartedCount--;
+            if(!extraction.append(line.substring(endIndex))) {
+                openExtractionList.add(extraction);
+            }
+
+            return unstartedCount > 0;
+        }
+    }
+}
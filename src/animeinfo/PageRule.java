@@ -0,0 +1,306 @@
+package animeinfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A rule for extracting one field from a page.
+ * A field starts just after the first occurrence of its start marker and the rule's extraction decides where it ends.
+ */
+public abstract class PageRule {
+    public static final String SEPARATOR = System.getProperty("line.separator");
+    public static final String INFO_BLOCK_END = "<div id=\"infotype-", SCRIPT_END = "<script type=\"text/javascript\">";
+    private final String name, start;
+
+    /**
+     * Makes a rule.
+     *
+     * @param name  the name of the field
+     * @param start the start marker of the field
+     */
+    protected PageRule(String name, String start) {
+        this.name = name;
+        this.start = start;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getStart() {
+        return start;
+    }
+
+    /**
+     * Makes a new extraction of this rule's field for one page.
+     *
+     * @return the extraction
+     */
+    public abstract Extraction newExtraction();
+
+    /**
+     * Makes a rule for the text between a start and an end marker.
+     *
+     * @param name  the name of the field
+     * @param start the start marker
+     * @param end   the end marker
+     * @return the rule
+     */
+    public static PageRule between(String name, String start, final String end) {
+        return new PageRule(name, start) {
+            @Override
+            public Extraction newExtraction() {
+                return new BetweenExtraction(end);
+            }
+        };
+    }
+
+    /**
+     * Makes a rule for an ANN info block ("&lt;strong&gt;name:&lt;/strong&gt;") that goes on until the next info block,
+     * or the page's javascript for titles that do not have further info blocks.
+     * The values are the single span in the block, otherwise each tab div in the block.
+     *
+     * @param name the name of the info block
+     * @return the rule
+     */
+    public static PageRule infoBlock(String name) {
+        return new PageRule(name, "<strong>" + name + ":</strong>") {
+            @Override
+            public Extraction newExtraction() {
+                return new InfoBlockExtraction();
+            }
+        };
+    }
+
+    /**
+     * Makes a rule for an ANN tag list ("&lt;strong&gt;name:&lt;/strong&gt;").
+     * The values are the link texts of each tag between the first span and the end of its div.
+     *
+     * @param name the name of the tag list
+     * @return the rule
+     */
+    public static PageRule tagList(String name) {
+        return new PageRule(name, "<strong>" + name + ":</strong>") {
+            @Override
+            public Extraction newExtraction() {
+                return new TagListExtraction();
+            }
+        };
+    }
+
+    /**
+     * Makes a rule for the texts of every link between a start and an end marker.
+     *
+     * @param name  the name of the field
+     * @param start the start marker
+     * @param end   the end marker
+     * @return the rule
+     */
+    public static PageRule linkList(String name, String start, final String end) {
+        return new PageRule(name, start) {
+            @Override
+            public Extraction newExtraction() {
+                return new LinkListExtraction(end);
+            }
+        };
+    }
+
+    /**
+     * The text of a field from just after its start marker.
+     */
+    public abstract static class Extraction {
+        protected final StringBuilder content;
+        protected final List<String> valueList;
+
+        protected Extraction() {
+            content = new StringBuilder();
+            valueList = new ArrayList<>();
+        }
+
+        /**
+         * Adds text to the field.
+         *
+         * @param text the text
+         * @return true if the field is done
+         */
+        public abstract boolean append(String text);
+
+        /**
+         * Called if the page ended before the field was done.
+         */
+        public void finish() {
+        }
+
+        /**
+         * Gets the values of the field.
+         *
+         * @return the values
+         */
+        public List<String> getValueList() {
+            return valueList;
+        }
+
+        /**
+         * Adds text to the content and looks for a marker in the part that may now contain it.
+         *
+         * @param text      the text
+         * @param marker    the marker
+         * @param fromIndex the index the marker can not start before
+         * @return the index of the marker, otherwise -1
+         */
+        protected int appendAndFind(String text, String marker, int fromIndex) {
+            int searchIndex = Math.max(fromIndex, content.length() - marker.length() + 1);
+            content.append(text);
+
+            return content.indexOf(marker, searchIndex);
+        }
+    }
+
+    private static class BetweenExtraction extends Extraction {
+        private final String end;
+
+        private BetweenExtraction(String end) {
+            this.end = end;
+        }
+
+        @Override
+        public boolean append(String text) {
+            int endIndex = appendAndFind(text, end, 0);
+            if(endIndex == -1) {
+                return false;
+            }
+
+            valueList.add(content.substring(0, endIndex));
+
+            return true;
+        }
+    }
+
+    private static class InfoBlockExtraction extends Extraction {
+        private int scriptEndIndex = -1;
+
+        @Override
+        public boolean append(String text) {
+            int previousLength = content.length();
+            int blockEndIndex = appendAndFind(text, INFO_BLOCK_END, 0);
+
+            // remember the first javascript in case there is no further info block
+            if(scriptEndIndex == -1) {
+                scriptEndIndex = content.indexOf(SCRIPT_END, Math.max(0, previousLength - SCRIPT_END.length() + 1));
+            }
+
+            if(blockEndIndex == -1) {
+                return false;
+            }
+
+            parse(content.substring(0, blockEndIndex));
+
+            return true;
+        }
+
+        @Override
+        public void finish() {
+            if(scriptEndIndex != -1) {
+                parse(content.substring(0, scriptEndIndex));
+            }
+        }
+
+        private void parse(String blockContent) {
+            String spanStart = "<span>";
+            int spanStartIndex = blockContent.indexOf(spanStart);
+            if(spanStartIndex == -1) { // multiple values
+                for(String line : blockContent.split(SEPARATOR)) {
+                    // start of value
+                    String divStart = "<div class=\"tab\">";
+                    int divStartIndex = line.lastIndexOf(divStart);
+                    if(divStartIndex != -1) {
+                        // end of content
+                        String divEnd = "<";
+                        int divEndIndex = line.indexOf(divEnd, divStartIndex + divStart.length());
+                        if(divEndIndex != -1) {
+                            valueList.add(line.substring(divStartIndex + divStart.length(), divEndIndex));
+                        }
+                    }
+                }
+            }
+            else { // single value
+                int spanEndIndex = blockContent.indexOf("</span>", spanStartIndex + spanStart.length());
+                if(spanEndIndex != -1) {
+                    valueList.add(blockContent.substring(spanStartIndex + spanStart.length(), spanEndIndex));
+                }
+            }
+        }
+    }
+
+    private static class TagListExtraction extends Extraction {
+        private static final String TAGS_START = "<span>", TAGS_END = "</div>";
+        private int tagsStartIndex = -1;
+
+        @Override
+        public boolean append(String text) {
+            int tagsEndIndex;
+            if(tagsStartIndex == -1) {
+                tagsStartIndex = appendAndFind(text, TAGS_START, 0);
+                if(tagsStartIndex == -1) {
+                    return false;
+                }
+
+                // the end of the tags may already be in the content
+                tagsEndIndex = content.indexOf(TAGS_END, tagsStartIndex + TAGS_START.length());
+            }
+            else {
+                tagsEndIndex = appendAndFind(text, TAGS_END, tagsStartIndex + TAGS_START.length());
+            }
+
+            if(tagsEndIndex == -1) {
+                return false;
+            }
+
+            for(String tag : content.substring(tagsStartIndex + TAGS_START.length(), tagsEndIndex).split(SEPARATOR)) {
+                // end of tag
+                int aSpanIndex = tag.lastIndexOf("</a></span>");
+                if(aSpanIndex != -1) {
+                    // start of tag
+                    String closeTag = ">";
+                    int tagIndex = tag.lastIndexOf(closeTag, aSpanIndex);
+                    if(tagIndex != -1) {
+                        valueList.add(tag.substring(tagIndex + closeTag.length(), aSpanIndex));
+                    }
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static class LinkListExtraction extends Extraction {
+        private final String end;
+
+        private LinkListExtraction(String end) {
+            this.end = end;
+        }
+
+        @Override
+        public boolean append(String text) {
+            int endIndex = appendAndFind(text, end, 0);
+            if(endIndex == -1) {
+                return false;
+            }
+
+            String linkContent = content.substring(0, endIndex);
+            int aStartIndex = linkContent.indexOf("<a ");
+            while(aStartIndex != -1) {
+                int textStartIndex = linkContent.indexOf(">", aStartIndex);
+                int textEndIndex = textStartIndex == -1 ? -1 : linkContent.indexOf("</a>", textStartIndex);
+                if(textEndIndex == -1) {
+                    break;
+                }
+
+                valueList.add(linkContent.substring(textStartIndex + 1, textEndIndex));
+                aStartIndex = linkContent.indexOf("<a ", textEndIndex);
+            }
+
+            return true;
+        }
+    }
+}
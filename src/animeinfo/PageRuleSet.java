@@ -0,0 +1,70 @@
+package animeinfo;
+
+import tool.MarkerMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of page rules compiled once into a single matcher over all of their start markers.
+ * A rule set can be shared between threads, each page is parsed with its own PageParser.
+ */
+public class PageRuleSet {
+    private final List<PageRule> ruleList;
+    private final Map<String, Integer> nameToIndexMap;
+    private final MarkerMatcher startMatcher;
+
+    /**
+     * Compiles a set of rules.
+     *
+     * @param rules the rules, each with a different name
+     */
+    public PageRuleSet(List<PageRule> rules) {
+        ruleList = Collections.unmodifiableList(new ArrayList<>(rules));
+        nameToIndexMap = new HashMap<>();
+
+        List<String> startList = new ArrayList<>();
+        for(int i = 0; i < ruleList.size(); i++) {
+            PageRule rule = ruleList.get(i);
+            if(nameToIndexMap.put(rule.getName(), i) != null) {
+                throw new IllegalArgumentException("duplicate rule name: " + rule.getName());
+            }
+
+            startList.add(rule.getStart());
+        }
+
+        startMatcher = new MarkerMatcher(startList);
+    }
+
+    /**
+     * Makes a parser for one page.
+     *
+     * @return the parser
+     */
+    public PageParser newParser() {
+        return new PageParser(this);
+    }
+
+    public List<PageRule> getRuleList() {
+        return ruleList;
+    }
+
+    /**
+     * Gets the index of a rule.
+     *
+     * @param name the name of the rule
+     * @return the index, otherwise -1
+     */
+    public int getIndex(String name) {
+        Integer index = nameToIndexMap.get(name);
+
+        return index == null ? -1 : index;
+    }
+
+    MarkerMatcher getStartMatcher() {
+        return startMatcher;
+    }
+}
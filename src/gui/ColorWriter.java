@@ -1,10 +1,12 @@
 package gui;
 
+import tool.AtomicFileOutputStream;
+
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 import java.awt.*;
-import java.io.*;
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -29,10 +31,9 @@ public class ColorWriter {
     public static boolean save(String fileLocation, Map<String, Color> nameToColorMap) {
         XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
 
-        try {
-            OutputStream outputStream = new FileOutputStream(fileLocation);
-            BufferedOutputStream bufferedOutputStream = new BufferedOutputStream(outputStream);
-            XMLStreamWriter streamWriter = outputFactory.createXMLStreamWriter(bufferedOutputStream, "UTF-8");
+        // write to a temp file that only replaces the file once everything is on disk
+        try(AtomicFileOutputStream outputStream = new AtomicFileOutputStream(fileLocation)) {
+            XMLStreamWriter streamWriter = outputFactory.createXMLStreamWriter(outputStream, "UTF-8");
 
             streamWriter.writeStartDocument("UTF-8", "1.0");
             streamWriter.writeDTD(SEPARATOR);
@@ -50,13 +51,10 @@ public class ColorWriter {
             streamWriter.writeEndDocument();
 
             streamWriter.close();
-            bufferedOutputStream.close();
-            outputStream.close();
+            outputStream.commit();
 
             return true;
         }
-        catch(FileNotFoundException e) {
-        }
         catch(XMLStreamException e) {
         }
         catch(IOException e) {
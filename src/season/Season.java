@@ -1,13 +1,57 @@
 package season;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Stores info about a season.
  */
 public class Season {
     public static final String[] SEASONS = {"Winter", "Spring", "Summer", "Fall"};
+    public static final int NO_KEY = -1;
+    public static final int MAX_YEAR = (1 << 20) - 1;
+    private static final int[] FIRST_MONTH_FOR_TERM = {1, 4, 7, 10};
+    public static final int MAX_CACHED_SEASONS = 1024;
+    public static final int MONTH_MASK = 0xF, DAY_MASK = 0x7F;
+    private static final int YEAR_SHIFT = 11, MONTH_SHIFT = 7;
+    private static final Map<String, Season> seasonCache;
     public final String SEASON, TERM;
     public final int YEAR, MONTH, DAY;
 
+    // static initializer
+    static {
+        // least recently used seasons are dropped first once the cache is full
+        seasonCache = new LinkedHashMap<String, Season>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Season> eldest) {
+                return size() > MAX_CACHED_SEASONS;
+            }
+        };
+    }
+
+    /**
+     * Gets a Season object, sharing the one made for the same string if it is still cached.
+     * Listings repeat the same few seasons, like "Fall 2014", so most of them are only parsed once.
+     *
+     * @param season the season in TERM YEAR or YEAR-MONTH-DAY format
+     * @return the Season object
+     */
+    public static Season valueOf(String season) {
+        if(season == null) {
+            return new Season(null);
+        }
+
+        synchronized(seasonCache) {
+            Season cachedSeason = seasonCache.get(season);
+            if(cachedSeason == null) {
+                cachedSeason = new Season(season);
+                seasonCache.put(season, cachedSeason);
+            }
+
+            return cachedSeason;
+        }
+    }
+
     /**
      * Makes a Season object.
      *
@@ -16,26 +60,24 @@ public class Season {
      *               and the YEAR and SEASON_VALUE will be -1
      */
     public Season(String season) {
-        if(isTermYearSeason(season)) {
-            String space = " ";
-            int spaceIndex = season.indexOf(space);
+        int key = getKey(season);
+        if(key != NO_KEY && !isDigit(season.charAt(0))) { // TERM YEAR
+            int spaceIndex = season.indexOf(' ');
             TERM = season.substring(0, spaceIndex);
-            YEAR = Integer.parseInt(season.substring(spaceIndex + space.length()));
+            YEAR = getYear(key);
 
             SEASON = season;
 
-            MONTH = getFirstMonthForTerm(TERM);
+            MONTH = getMonth(key);
             DAY = 1;
         }
-        else if(isYearMonthDaySeason(season)) {
-            String[] dateArr = season.split("-");
+        else if(key != NO_KEY) { // YEAR-MONTH-DAY
+            DAY = getDay(key);
 
-            DAY = Integer.parseInt(dateArr[2]);
-
-            MONTH = Integer.parseInt(dateArr[1]);
+            MONTH = getMonth(key);
 
             TERM = getTerm(MONTH);
-            YEAR = Integer.parseInt(dateArr[0]);
+            YEAR = getYear(key);
 
             SEASON = TERM + " " + YEAR;
         }
@@ -52,83 +94,222 @@ public class Season {
     }
 
     /**
-     * Checks if a str matches the pattern for a season.
+     * Gets the key of a season, packing its year, month and day into an int without making any objects.
+     * Keys compare in the same order as seasons, so seasons can be sorted as plain ints.
+     * A TERM YEAR season has the first month of the term and day 1, like the YEAR, MONTH and DAY fields.
      *
-     * @param season the season in TERM YEAR format.
-     * @return true if season matches the above format
+     * @param season the season in TERM YEAR or YEAR-MONTH-DAY format
+     * @return the key, otherwise NO_KEY on format failure, which is before every other key
      */
-    private boolean isTermYearSeason(String season) {
-        if(season == null) {
-            return false;
+    public static int getKey(String season) {
+        if(season == null || season.length() == 0) {
+            return NO_KEY;
         }
 
-        // match any case type
-        season = season.toLowerCase();
+        if(isDigit(season.charAt(0))) {
+            return getYearMonthDayKey(season);
+        }
 
-        for(String temp : SEASONS) {
-            // see if the season has "term #"
-            if(season.matches("^" + temp.toLowerCase() + " [0-9]+$")) {
-                return true;
-            }
+        return getTermYearKey(season);
+    }
+
+    /**
+     * Gets the key of a date, which can also be given only to the month or the year, like "1998-04" or "1998".
+     * A full date or a season gets the same key as from getKey, and the parts a date does not have are 0,
+     * so it sorts before every full date in its month or year.
+     *
+     * @param date the date in YEAR-MM-DD, YEAR-MM or YEAR format, or a season in TERM YEAR format
+     * @return the key, otherwise NO_KEY on format failure
+     */
+    public static int getDateKey(String date) {
+        int key = getKey(date);
+        if(key != NO_KEY || date == null || date.length() == 0 || !isDigit(date.charAt(0))) {
+            return key;
         }
 
-        return false;
+        int dashIndex = date.indexOf('-');
+        if(dashIndex == -1) { // YEAR
+            int year = parseNumber(date, 0, date.length());
+
+            return year == -1 ? NO_KEY : pack(year, 0, 0);
+        }
+
+        // YEAR-MM
+        int year = parseNumber(date, 0, dashIndex);
+        int month = date.length() == dashIndex + 3 ? parseNumber(date, dashIndex + 1, date.length()) : -1;
+        if(year == -1 || month < 1 || month > 12) {
+            return NO_KEY;
+        }
+
+        return pack(year, month, 0);
     }
 
-    private boolean isYearMonthDaySeason(String season) {
-        if(season == null) {
-            return false;
+    /**
+     * Gets the key of a year, month and day, for the bounds of a range of keys.
+     * A month or day of 0 is before every other in its year or month, and MONTH_MASK or DAY_MASK after.
+     *
+     * @param year  the year
+     * @param month the month, from 0 to MONTH_MASK
+     * @param day   the day, from 0 to DAY_MASK
+     * @return the key, otherwise NO_KEY if a part is out of range
+     */
+    public static int getKey(int year, int month, int day) {
+        if(year < 0 || year > MAX_YEAR || month < 0 || month > MONTH_MASK || day < 0 || day > DAY_MASK) {
+            return NO_KEY;
         }
 
-        return season.matches("^[0-9]+\\-0[1-9]\\-[0-9]{2}$") ||
-                season.matches("^[0-9]+\\-1[0-2]\\-[0-9]{2}$");
+        return pack(year, month, day);
     }
 
     /**
-     * Gets the term a month is in.
+     * Gets the year of a season key.
      *
-     * @param month the month
-     * @return the term
+     * @param key the key
+     * @return the year, otherwise -1 for NO_KEY
      */
-    private String getTerm(int month) {
-        if(month >= 1 && month <= 3) {
-            return SEASONS[0];
+    public static int getYear(int key) {
+        return key == NO_KEY ? -1 : key >>> YEAR_SHIFT;
+    }
+
+    /**
+     * Gets the month of a season key.
+     *
+     * @param key the key
+     * @return the month, otherwise -1 for NO_KEY
+     */
+    public static int getMonth(int key) {
+        return key == NO_KEY ? -1 : (key >>> MONTH_SHIFT) & MONTH_MASK;
+    }
+
+    /**
+     * Gets the day of a season key.
+     *
+     * @param key the key
+     * @return the day, otherwise -1 for NO_KEY
+     */
+    public static int getDay(int key) {
+        return key == NO_KEY ? -1 : key & DAY_MASK;
+    }
+
+    /**
+     * Gets the season a key is in.
+     *
+     * @param key the key
+     * @return the season in TERM YEAR format, otherwise "?" for NO_KEY
+     */
+    public static String getSeason(int key) {
+        if(key == NO_KEY) {
+            return "?";
         }
-        else if(month >= 4 && month <= 6) {
-            return SEASONS[1];
+
+        return SEASONS[(getMonth(key) - 1) / 3] + " " + getYear(key);
+    }
+
+    /**
+     * Gets the key of a season in TERM YEAR format, the term in any case and the year any number of digits.
+     *
+     * @param season the season
+     * @return the key, otherwise NO_KEY
+     */
+    private static int getTermYearKey(String season) {
+        for(int i = 0; i < SEASONS.length; i++) {
+            String term = SEASONS[i];
+            int yearStart = term.length() + 1;
+            if(season.length() > yearStart && season.regionMatches(true, 0, term, 0, term.length()) &&
+                    season.charAt(term.length()) == ' ') {
+                int year = parseNumber(season, yearStart, season.length());
+                if(year == -1) {
+                    return NO_KEY;
+                }
+
+                return pack(year, FIRST_MONTH_FOR_TERM[i], 1);
+            }
         }
-        else if(month >= 7 && month <= 9) {
-            return SEASONS[2];
+
+        return NO_KEY;
+    }
+
+    /**
+     * Gets the key of a season in YEAR-MONTH-DAY format, the year any number of digits, the month 01 to 12
+     * and the day two digits.
+     *
+     * @param season the season
+     * @return the key, otherwise NO_KEY
+     */
+    private static int getYearMonthDayKey(String season) {
+        int length = season.length();
+        int monthStart = length - 5; // YEAR-MM-DD
+        if(monthStart < 2 || season.charAt(monthStart - 1) != '-' || season.charAt(length - 3) != '-') {
+            return NO_KEY;
         }
-        else {
-            return SEASONS[3];
+
+        int year = parseNumber(season, 0, monthStart - 1);
+        int month = parseNumber(season, monthStart, monthStart + 2);
+        int day = parseNumber(season, length - 2, length);
+        if(year == -1 || month < 1 || month > 12 || day == -1) {
+            return NO_KEY;
         }
+
+        return pack(year, month, day);
     }
 
     /**
-     * Gets the seasons value for sorting purposes.
+     * Parses the digits in part of a string.
      *
-     * @param term the term
-     * @return the season's value
+     * @param str   the string
+     * @param start the start of the digits
+     * @param end   the end of the digits
+     * @return the number, otherwise -1 if there are no digits, a character that is not a digit, or a number too large
+     *         for a key
      */
-    private int getFirstMonthForTerm(String term) {
-        if(term == null) {
+    private static int parseNumber(String str, int start, int end) {
+        if(start >= end) {
             return -1;
         }
 
-        int[] firstMonthForTermArr = {1, 4, 7, 10};
-
-        // match any case type
-        term = term.toLowerCase();
+        int number = 0;
+        for(int i = start; i < end; i++) {
+            char c = str.charAt(i);
+            if(!isDigit(c)) {
+                return -1;
+            }
 
-        for(int i = 0; i < SEASONS.length; i++) {
-            if(term.equals(SEASONS[i].toLowerCase())) {
-                return firstMonthForTermArr[i];
+            number = number * 10 + c - '0';
+            if(number > MAX_YEAR) {
+                return -1;
             }
         }
 
-        // could not find a match
-        return -1;
+        return number;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int pack(int year, int month, int day) {
+        return year << YEAR_SHIFT | month << MONTH_SHIFT | day;
+    }
+
+    /**
+     * Gets the term a month is in.
+     *
+     * @param month the month
+     * @return the term
+     */
+    private static String getTerm(int month) {
+        if(month >= 1 && month <= 3) {
+            return SEASONS[0];
+        }
+        else if(month >= 4 && month <= 6) {
+            return SEASONS[1];
+        }
+        else if(month >= 7 && month <= 9) {
+            return SEASONS[2];
+        }
+        else {
+            return SEASONS[3];
+        }
     }
 
     public int hashCode() {
@@ -4,32 +4,22 @@ import java.util.Comparator;
 
 /**
  * String comparator for sorting seasons.
+ * Seasons are compared by their keys, which are parsed without making any objects.
  */
 public class SeasonComparator implements Comparator<String> {
     public int compare(String str1, String str2) {
-        Season season1 = new Season(str1);
-        Season season2 = new Season(str2);
+        return compareKeys(Season.getKey(str1), Season.getKey(str2));
+    }
 
-        if(season1.YEAR > season2.YEAR) {
-            return 1;
-        }
-        else if(season1.YEAR < season2.YEAR) {
-            return -1;
-        }
-        else if(season1.MONTH > season2.MONTH) {
-            return 1;
-        }
-        else if(season1.MONTH < season2.MONTH) {
-            return -1;
-        }
-        else if(season1.DAY > season2.DAY) {
-            return 1;
-        }
-        else if(season1.DAY < season2.DAY) {
-            return -1;
-        }
-        else {
-            return 0;
-        }
+    /**
+     * Compares two season keys.
+     * Keys order like plain ints, so an int[] of keys can also just be sorted with Arrays.sort.
+     *
+     * @param key1 the first key
+     * @param key2 the second key
+     * @return negative, zero or positive as the first season is before, the same as or after the second
+     */
+    public static int compareKeys(int key1, int key2) {
+        return Integer.compare(key1, key2);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package season;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.Function;
+
+/**
+ * Sorts by season, parsing each season only once.
+ * Every element is decorated with its season key and its position packed into a long, the longs are sorted as
+ * primitives and the elements are put back in that order, so equal seasons keep their order.
+ */
+public final class SeasonSorter {
+    /**
+     * Do not allow objects of this class to be made.
+     */
+    private SeasonSorter() {
+    }
+
+    /**
+     * Sorts seasons.
+     *
+     * @param seasonList the seasons in TERM YEAR or YEAR-MONTH-DAY format, seasons that cannot be parsed go first
+     */
+    public static void sort(List<String> seasonList) {
+        sort(seasonList, new Function<String, String>() {
+            @Override
+            public String apply(String season) {
+                return season;
+            }
+        });
+    }
+
+    /**
+     * Sorts elements by their season.
+     *
+     * @param list           the elements, elements whose season cannot be parsed go first
+     * @param seasonFunction gets the season of an element in TERM YEAR or YEAR-MONTH-DAY format
+     * @param <T>            the type of the elements
+     */
+    public static <T> void sort(List<T> list, Function<? super T, String> seasonFunction) {
+        Object[] elements = list.toArray();
+
+        // NO_KEY is negative, so it still sorts first in the high half
+        long[] decorated = new long[elements.length];
+        for(int i = 0; i < elements.length; i++) {
+            @SuppressWarnings("unchecked")
+            T element = (T) elements[i];
+            decorated[i] = (long) Season.getKey(seasonFunction.apply(element)) << 32 | i;
+        }
+
+        Arrays.sort(decorated);
+
+        ListIterator<T> listIterator = list.listIterator();
+        for(long decoratedElement : decorated) {
+            @SuppressWarnings("unchecked")
+            T element = (T) elements[(int) decoratedElement];
+            listIterator.next();
+            listIterator.set(element);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package tool;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+
+/**
+ * An output stream that replaces a file all at once.
+ * Data is written to a temp file next to the file through a large direct buffer. commit() forces the temp file to disk
+ * and renames it over the file; closing without committing deletes the temp file and leaves the file untouched.
+ */
+public final class AtomicFileOutputStream extends OutputStream {
+    public static final int BUFFER_SIZE = 1024 * 1024;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private final Path path, tempPath;
+    private final FileChannel fileChannel;
+    private final ByteBuffer buffer;
+    private boolean committed, closed;
+
+    /**
+     * Starts replacing a file.
+     *
+     * @param filename the filename of the file to replace
+     * @throws IOException on IOException
+     */
+    public AtomicFileOutputStream(String filename) throws IOException {
+        path = new File(filename).getAbsoluteFile().toPath();
+
+        // not Files.createTempFile, its files are only readable by the owner and the file should get the usual permissions
+        Path newTempPath;
+        FileChannel newFileChannel;
+        while(true) {
+            newTempPath = path.resolveSibling(path.getFileName() + "." + Long.toHexString(RANDOM.nextLong()) + ".tmp");
+            try {
+                newFileChannel = FileChannel.open(newTempPath, StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+                break;
+            }
+            catch(FileAlreadyExistsException e) {
+            }
+        }
+        tempPath = newTempPath;
+        fileChannel = newFileChannel;
+        buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        committed = false;
+        closed = false;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if(!buffer.hasRemaining()) {
+            drainBuffer();
+        }
+
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while(len > 0) {
+            if(!buffer.hasRemaining()) {
+                drainBuffer();
+            }
+
+            int chunk = Math.min(len, buffer.remaining());
+            buffer.put(b, off, chunk);
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Writes out the buffer, the data only becomes durable on commit().
+     *
+     * @throws IOException on IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        drainBuffer();
+    }
+
+    /**
+     * Forces everything written to disk and replaces the file with it.
+     *
+     * @throws IOException on IOException, the file is left untouched
+     */
+    public void commit() throws IOException {
+        ensureOpen();
+        drainBuffer();
+        fileChannel.force(true);
+        fileChannel.close();
+        closed = true;
+
+        try {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch(IOException e) {
+            Files.deleteIfExists(tempPath);
+
+            throw e;
+        }
+        committed = true;
+
+        forceDirectory(path.getParent());
+    }
+
+    /**
+     * Closes the stream, throwing away everything written if it was not committed.
+     *
+     * @throws IOException on IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if(!closed) {
+            closed = true;
+            fileChannel.close();
+        }
+
+        if(!committed) {
+            Files.deleteIfExists(tempPath);
+        }
+    }
+
+    private void drainBuffer() throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            fileChannel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensureOpen() throws IOException {
+        if(closed) {
+            throw new IOException("stream is closed");
+        }
+    }
+
+    /**
+     * Forces a directory to disk so the rename survives a crash.
+     * Not every platform allows opening a directory, there the rename is as durable as the platform makes it.
+     *
+     * @param directory the directory
+     */
+    private static void forceDirectory(Path directory) {
+        try(FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        }
+        catch(IOException e) {
+        }
+    }
+}
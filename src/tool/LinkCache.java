@@ -0,0 +1,343 @@
+package tool;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An on-disk cache of link responses and their validators, used by LinkTool for conditional requests.
+ * Each link is stored in one file named after the SHA-1 of the link, its body running to the end of the file.
+ * The cache is kept under a maximum size by deleting the least recently used files whenever a response is cached.
+ * Deleting the files in the directory while nothing is loading clears the cache.
+ */
+final class LinkCache {
+    public static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+    private static final int VERSION = 2;
+    private static final FileFilter CACHE_FILE_FILTER = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return file.getName().endsWith(".cache");
+        }
+    };
+    private final File directory;
+    private final long maxSize;
+    private long size = -1;
+
+    /**
+     * A cached response.
+     */
+    static final class Entry {
+        final String eTag, lastModified;
+        final byte[] body;
+
+        Entry(String eTag, String lastModified, byte[] body) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Makes a link cache.
+     *
+     * @param directory the directory to keep the cached responses in, made if it does not exist
+     * @param maxSize   the maximum size of the cached responses in bytes
+     */
+    LinkCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        directory.mkdirs();
+    }
+
+    /**
+     * Gets the cached response of a link.
+     *
+     * @param link the link
+     * @return the cached response, otherwise null
+     */
+    Entry get(String link) {
+        File file = getFile(link);
+        if(!file.isFile()) {
+            return null;
+        }
+
+        try(DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if(dataInputStream.readInt() != VERSION) {
+                return null;
+            }
+
+            // make sure the file is not a hash collision
+            if(!dataInputStream.readUTF().equals(link)) {
+                return null;
+            }
+
+            String eTag = dataInputStream.readUTF();
+            String lastModified = dataInputStream.readUTF();
+            ByteArrayOutputStream body = new ByteArrayOutputStream((int) Math.min(file.length(), Integer.MAX_VALUE));
+            byte[] b = new byte[8192];
+
+            int length;
+            while((length = dataInputStream.read(b)) != -1) {
+                body.write(b, 0, length);
+            }
+
+            // a response that is used is kept over ones that are not
+            file.setLastModified(System.currentTimeMillis());
+
+            return new Entry(eTag, lastModified, body.toByteArray());
+        }
+        catch(IOException e) {
+        }
+
+        return null;
+    }
+
+    /**
+     * Caches the response of a link as its body is read, replacing any older response.
+     * The response is only cached once the body has been read to the end and the stream closed, so a body that was
+     * cut off is never cached; until then readers see the older response.
+     *
+     * @param link         the link
+     * @param eTag         the response's ETag or an empty string
+     * @param lastModified the response's Last-Modified or an empty string
+     * @param body         the response's body
+     * @param bodyLength   the length the body should have, otherwise -1 if it is not known
+     * @return the body, to be read instead, that writes what is read of it to the cache
+     */
+    InputStream cache(String link, String eTag, String lastModified, InputStream body, long bodyLength) {
+        File file = getFile(link);
+
+        // write to a temp file first so readers never see a partial response
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+            DataOutputStream dataOutputStream =
+                    new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            try {
+                dataOutputStream.writeInt(VERSION);
+                dataOutputStream.writeUTF(link);
+                dataOutputStream.writeUTF(eTag);
+                dataOutputStream.writeUTF(lastModified);
+            }
+            catch(IOException e) {
+                dataOutputStream.close();
+                throw e;
+            }
+
+            return new CachingInputStream(body, bodyLength, dataOutputStream, tempFile, file);
+        }
+        catch(IOException e) { // the response is just not cached
+            if(tempFile != null) {
+                tempFile.delete();
+            }
+        }
+
+        return body;
+    }
+
+    /**
+     * Moves a written temp file over the cache file of a link, then deletes the least recently used files if the
+     * cache has grown over its maximum size.
+     *
+     * @param tempFile the temp file
+     * @param file     the cache file
+     * @throws IOException on IOException
+     */
+    private synchronized void commit(File tempFile, File file) throws IOException {
+        // the size is only added up from the directory once, after that it is kept up to date here
+        if(size == -1) {
+            size = getSize(directory.listFiles(CACHE_FILE_FILTER));
+        }
+
+        long oldLength = file.length();
+        long length = tempFile.length();
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        size += length - oldLength;
+
+        if(size <= maxSize) {
+            return;
+        }
+
+        File[] files = directory.listFiles(CACHE_FILE_FILTER);
+        if(files == null) {
+            return;
+        }
+
+        // the files were deleted or changed outside the cache, so the size is counted again
+        size = getSize(files);
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                return Long.compare(file1.lastModified(), file2.lastModified());
+            }
+        });
+
+        for(int i = 0; i < files.length && size > maxSize; i++) {
+            if(!files[i].equals(file)) {
+                long fileLength = files[i].length();
+                if(files[i].delete()) {
+                    size -= fileLength;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds up the length of files.
+     *
+     * @param files the files, may be null
+     * @return the total length
+     */
+    private static long getSize(File[] files) {
+        long size = 0;
+        if(files != null) {
+            for(File file : files) {
+                size += file.length();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Gets the file a link is cached in.
+     *
+     * @param link the link
+     * @return the file
+     */
+    private File getFile(String link) {
+        return new File(directory, getSHA1(link) + ".cache");
+    }
+
+    /**
+     * Gets the SHA-1 of a string as hex.
+     *
+     * @param str the string
+     * @return the SHA-1 as hex
+     */
+    private static String getSHA1(String str) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(str.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder sb = new StringBuilder();
+            for(byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return sb.toString();
+        }
+        catch(NoSuchAlgorithmException e) { // every JVM has SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A response body that copies what is read of it to a temp file, and moves the temp file over the cache file
+     * when it is closed after being read to the end.
+     * A connection that drops can look like the end of the body, so a body shorter than its known length is not cached.
+     */
+    private final class CachingInputStream extends FilterInputStream {
+        private final long bodyLength;
+        private final OutputStream outputStream;
+        private final File tempFile, file;
+        private long readLength;
+        private boolean ended, failed, closed;
+
+        private CachingInputStream(InputStream inputStream, long bodyLength, OutputStream outputStream, File tempFile,
+                                   File file) {
+            super(inputStream);
+            this.bodyLength = bodyLength;
+            this.outputStream = outputStream;
+            this.tempFile = tempFile;
+            this.file = file;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if(b == -1) {
+                ended = true;
+            }
+            else {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int length = super.read(b, off, len);
+            if(length == -1) {
+                ended = true;
+            }
+            else {
+                write(b, off, length);
+            }
+
+            return length;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            failed = true; // skipped bytes would be missing from the cached body
+
+            return super.skip(n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void write(byte[] b, int off, int len) {
+            readLength += len;
+            if(failed) {
+                return;
+            }
+
+            try {
+                outputStream.write(b, off, len);
+            }
+            catch(IOException e) { // stop caching, the body is still read
+                failed = true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if(closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                super.close();
+            }
+            finally {
+                boolean cached = false;
+                try {
+                    outputStream.close();
+                    if(ended && !failed && (bodyLength == -1 || readLength == bodyLength)) {
+                        commit(tempFile, file);
+                        cached = true;
+                    }
+                }
+                catch(IOException e) {
+                }
+                finally {
+                    if(!cached) {
+                        tempFile.delete();
+                    }
+                }
+            }
+        }
+    }
+}
@@ -2,15 +2,34 @@ package tool;
 
 import java.awt.*;
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
 import java.net.*;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 /**
  * General purpose class to deal with links.
  */
 public final class LinkTool {
     public static final String SEPARATOR = System.getProperty("line.separator");
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10000, DEFAULT_READ_TIMEOUT = 30000;
+    private static volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT, readTimeout = DEFAULT_READ_TIMEOUT;
+    private static final ConcurrentMap<String, HostPermits> hostToPermitsMap = new ConcurrentHashMap<>();
+    private static volatile int maxConnectionsPerHost = Integer.MAX_VALUE;
+    private static volatile ExecutorService executor = newPlatformThreadExecutor();
+    private static volatile boolean virtualThreads = false;
+    private static volatile LinkCache linkCache = null;
+
+    // static initializer
+    static {
+        // the JDK keeps idle keep-alive connections in a shared pool, by default only 5 per host
+        if(System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", "16");
+        }
+    }
 
     /**
      * Do not allow objects of this class to be made.
@@ -18,6 +37,325 @@ public final class LinkTool {
     private LinkTool() {
     }
 
+    /**
+     * Sets how long to wait for a connection to be made.
+     *
+     * @param timeout the timeout in milliseconds, 0 waits forever
+     */
+    public static void setConnectTimeout(int timeout) {
+        if(timeout < 0) {
+            throw new IllegalArgumentException("timeout can not be negative: " + timeout);
+        }
+
+        connectTimeout = timeout;
+    }
+
+    /**
+     * Sets how long to wait for data on an open connection.
+     *
+     * @param timeout the timeout in milliseconds, 0 waits forever
+     */
+    public static void setReadTimeout(int timeout) {
+        if(timeout < 0) {
+            throw new IllegalArgumentException("timeout can not be negative: " + timeout);
+        }
+
+        readTimeout = timeout;
+    }
+
+    /**
+     * Sets the directory responses are cached in, kept under the default maximum size.
+     * Cached responses are revalidated with a conditional request each time they are loaded.
+     *
+     * @param directory the directory, or null to stop caching
+     */
+    public static void setCacheDirectory(String directory) {
+        setCacheDirectory(directory, LinkCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Sets the directory responses are cached in.
+     * Cached responses are revalidated with a conditional request each time they are loaded, and the least recently
+     * used ones are deleted once the directory grows over the maximum size.
+     *
+     * @param directory the directory, or null to stop caching
+     * @param maxSize   the maximum size of the directory in bytes
+     */
+    public static void setCacheDirectory(String directory, long maxSize) {
+        if(maxSize < 0) {
+            throw new IllegalArgumentException("maxSize can not be negative: " + maxSize);
+        }
+
+        linkCache = directory == null ? null : new LinkCache(new File(directory), maxSize);
+    }
+
+    /**
+     * Opens a connection to a url with the configured timeouts that accepts gzip responses.
+     * Connections go back to the JDK's keep-alive pool once their input stream has been read to the end and closed.
+     *
+     * @param url the url
+     * @return the connection
+     * @throws IOException on IOException
+     */
+    private static URLConnection openConnection(URL url) throws IOException {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(connectTimeout);
+        connection.setReadTimeout(readTimeout);
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+
+        return connection;
+    }
+
+    /**
+     * Gets the decompressed input stream of a connection.
+     *
+     * @param connection the connection
+     * @return the input stream
+     * @throws IOException on IOException
+     */
+    private static InputStream getInputStream(URLConnection connection) throws IOException {
+        InputStream inputStream;
+        try {
+            inputStream = connection.getInputStream();
+        }
+        catch(IOException e) {
+            // read out the error page so the connection can be reused
+            if(connection instanceof HttpURLConnection) {
+                drain(((HttpURLConnection) connection).getErrorStream());
+            }
+
+            throw e;
+        }
+
+        if("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            return new GZIPInputStream(inputStream);
+        }
+
+        return inputStream;
+    }
+
+    /**
+     * Reads an input stream to the end and closes it.
+     *
+     * @param inputStream the input stream, may be null
+     */
+    private static void drain(InputStream inputStream) {
+        if(inputStream == null) {
+            return;
+        }
+
+        try(InputStream is = inputStream) {
+            byte[] b = new byte[4096];
+            while(is.read(b) != -1) {
+            }
+        }
+        catch(IOException e) {
+        }
+    }
+
+    /**
+     * Reads an input stream as UTF-8 text with the line separators replaced by the system's line separator.
+     *
+     * @param inputStream the input stream, closed when done
+     * @return the text
+     * @throws IOException on IOException
+     */
+    private static String readAsString(InputStream inputStream) throws IOException {
+        try(BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"))) {
+            StringBuilder sb = new StringBuilder();
+            String line = br.readLine();
+
+            while(line != null) {
+                sb.append(line);
+                sb.append(SEPARATOR);
+
+                line = br.readLine();
+            }
+
+            // remove last separator if there is one
+            String data = sb.toString();
+            int lastSeparatorIndex = data.lastIndexOf(SEPARATOR);
+            if(lastSeparatorIndex != -1) {
+                data = data.substring(0, lastSeparatorIndex);
+            }
+
+            return data;
+        }
+    }
+
+    /**
+     * Checks if the running JVM can run connections on virtual threads (Java 21 and up).
+     *
+     * @return true if virtual threads are supported
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return newVirtualThreadExecutor() != null;
+    }
+
+    /**
+     * Checks if the executor runs its tasks on virtual threads.
+     *
+     * @return true if virtual threads are used
+     */
+    public static boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Sets whether the executor runs its tasks on virtual threads instead of platform threads.
+     * Tasks already submitted finish on the executor they were submitted to, which no longer takes new tasks.
+     *
+     * @param useVirtualThreads true to use virtual threads
+     * @return true on success, false if virtual threads were requested but are not supported
+     */
+    public static synchronized boolean setVirtualThreads(boolean useVirtualThreads) {
+        if(useVirtualThreads == virtualThreads) {
+            return true;
+        }
+
+        ExecutorService newExecutor = useVirtualThreads ? newVirtualThreadExecutor() : newPlatformThreadExecutor();
+        if(newExecutor == null) {
+            return false;
+        }
+
+        ExecutorService oldExecutor = executor;
+        executor = newExecutor;
+        virtualThreads = useVirtualThreads;
+        oldExecutor.shutdown();
+
+        return true;
+    }
+
+    /**
+     * Gets the executor to run connections on.
+     *
+     * @return the executor
+     */
+    public static Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Makes an executor that runs every task on a new virtual thread.
+     * Looked up reflectively so this class still runs on older JVMs.
+     *
+     * @return the executor, otherwise null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(NoSuchMethodException e) {
+        }
+        catch(IllegalAccessException e) {
+        }
+        catch(InvocationTargetException e) {
+        }
+
+        return null;
+    }
+
+    /**
+     * Makes an executor that runs tasks on a cached pool of daemon platform threads.
+     *
+     * @return the executor
+     */
+    private static ExecutorService newPlatformThreadExecutor() {
+        return Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "LinkTool connection");
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * The connection slots of a host, which can be resized while connections hold some of them.
+     */
+    private static final class HostPermits extends Semaphore {
+        private static final long serialVersionUID = 1L;
+        private int limit;
+
+        private HostPermits(int limit) {
+            super(limit, true);
+            this.limit = limit;
+        }
+
+        /**
+         * Changes the number of slots. When shrinking, slots still held are taken away as they are released,
+         * so no new connection starts until the host is under the new limit.
+         *
+         * @param newLimit the new number of slots
+         */
+        private void resize(int newLimit) {
+            if(newLimit > limit) {
+                release(newLimit - limit);
+            }
+            else if(newLimit < limit) {
+                reducePermits(limit - newLimit);
+            }
+            limit = newLimit;
+        }
+    }
+
+    /**
+     * Sets the maximum number of simultaneous connections to a single host.
+     * The limit applies to every LinkTool connection in the process, including connections already waiting;
+     * when it is lowered, connections already open finish but no new one starts until a host is under the limit.
+     *
+     * @param maxConnections the maximum number of connections, must be at least 1
+     */
+    public static void setMaxConnectionsPerHost(int maxConnections) {
+        if(maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be at least 1: " + maxConnections);
+        }
+
+        synchronized(hostToPermitsMap) {
+            maxConnectionsPerHost = maxConnections;
+            for(HostPermits permits : hostToPermitsMap.values()) {
+                permits.resize(maxConnections);
+            }
+        }
+    }
+
+    /**
+     * Gets the maximum number of simultaneous connections to a single host.
+     *
+     * @return the maximum number of connections, Integer.MAX_VALUE if there is no limit
+     */
+    public static int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    /**
+     * Waits for a free connection slot for the host of a link.
+     *
+     * @param url the url
+     * @return the permits of the host, to be released when the connection is done
+     */
+    private static Semaphore acquireHostPermit(URL url) {
+        String host = url.getHost().toLowerCase();
+
+        HostPermits permits = hostToPermitsMap.get(host);
+        if(permits == null) {
+            // made under the same lock as resizing, so a new host never misses a change of the limit
+            synchronized(hostToPermitsMap) {
+                permits = hostToPermitsMap.get(host);
+                if(permits == null) {
+                    permits = new HostPermits(maxConnectionsPerHost);
+                    hostToPermitsMap.put(host, permits);
+                }
+            }
+        }
+
+        permits.acquireUninterruptibly();
+
+        return permits;
+    }
+
     /**
      * Gets a bing search of non UTF8 encoded text.
      *
@@ -36,8 +374,17 @@ public final class LinkTool {
      * @return the site link or null
      */
     public static String getBingSearchResultLink(String searchTerm, String siteLinkStart) {
-        String bingResult = getBingSearchResult(searchTerm);
+        return findBingSearchResultLink(getBingSearchResult(searchTerm), siteLinkStart);
+    }
 
+    /**
+     * Finds the first link of a site in a bing search result.
+     *
+     * @param bingResult    the bing search result, or null if the search failed
+     * @param siteLinkStart the site we want to get a link from
+     * @return the site link or null
+     */
+    public static String findBingSearchResultLink(String bingResult, String siteLinkStart) {
         if(bingResult == null) {
             return null;
         }
@@ -73,8 +420,17 @@ public final class LinkTool {
      * @return the site link or null
      */
     public static String getGoogleSearchResultLink(String searchTerm, String siteLinkStart) {
-        String googleResult = getGoogleSearchResult(searchTerm);
+        return findGoogleSearchResultLink(getGoogleSearchResult(searchTerm), siteLinkStart);
+    }
 
+    /**
+     * Finds the first link of a site in a google search result.
+     *
+     * @param googleResult  the google search result, or null if the search failed
+     * @param siteLinkStart the site we want to get a link from
+     * @return the site link or null
+     */
+    public static String findGoogleSearchResultLink(String googleResult, String siteLinkStart) {
         if(googleResult == null) {
             return null;
         }
@@ -104,13 +460,32 @@ public final class LinkTool {
             return -1;
         }
 
+        URL url;
         try {
-            return new URL(link).openConnection().getContentLength();
+            url = new URL(link);
         }
         catch(MalformedURLException e) {
+            return -1;
+        }
+
+        Semaphore hostPermits = acquireHostPermit(url);
+        try {
+            URLConnection connection = openConnection(url);
+            connection.setRequestProperty("Accept-Encoding", "identity"); // we want the real size, not the gzip size
+            if(connection instanceof HttpURLConnection) {
+                ((HttpURLConnection) connection).setRequestMethod("HEAD");
+            }
+
+            int size = connection.getContentLength();
+            drain(connection.getInputStream());
+
+            return size;
         }
         catch(IOException e) {
         }
+        finally {
+            hostPermits.release();
+        }
 
         return -1;
     }
@@ -177,35 +552,112 @@ public final class LinkTool {
      * @return the contents of the link as a string, otherwise null
      */
     public static String loadAsString(String link) {
+        final StringBuilder sb = new StringBuilder();
+        boolean loaded = loadLines(link, new Consumer<String>() {
+            private boolean firstLine = true;
+
+            @Override
+            public void accept(String line) {
+                if(!firstLine) {
+                    sb.append(SEPARATOR);
+                }
+                firstLine = false;
+
+                sb.append(line);
+            }
+        });
+
+        return loaded ? sb.toString() : null;
+    }
+
+    /**
+     * Gets data from a link line by line as it is downloaded, without keeping the whole page in memory.
+     * Responses that will be cached are written to the cache as their lines are given out.
+     *
+     * @param link         the link
+     * @param lineConsumer the consumer that is given each line, without its line separator
+     * @return true on success, otherwise false
+     */
+    public static boolean loadLines(String link, Consumer<String> lineConsumer) {
         if(link == null) {
-            return null;
+            return false;
         }
 
-        try(BufferedReader br = new BufferedReader(new InputStreamReader(new URL(link).openStream(), "UTF-8"))) {
+        URL url;
+        try {
+            url = new URL(link);
+        }
+        catch(MalformedURLException e) {
+            return false;
+        }
 
-            StringBuilder sb = new StringBuilder();
-            String line = br.readLine();
+        LinkCache linkCache = LinkTool.linkCache;
+        LinkCache.Entry cachedEntry = linkCache == null ? null : linkCache.get(link);
 
-            while(line != null) {
-                sb.append(line);
-                sb.append(SEPARATOR);
+        Semaphore hostPermits = acquireHostPermit(url);
+        try {
+            URLConnection connection = openConnection(url);
+            if(cachedEntry != null) {
+                if(!cachedEntry.eTag.equals("")) {
+                    connection.setRequestProperty("If-None-Match", cachedEntry.eTag);
+                }
+                if(!cachedEntry.lastModified.equals("")) {
+                    connection.setRequestProperty("If-Modified-Since", cachedEntry.lastModified);
+                }
+            }
 
-                line = br.readLine();
+            // the page has not changed since we cached it
+            if(cachedEntry != null && connection instanceof HttpURLConnection &&
+                    ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                drain(connection.getInputStream());
+                readLines(new ByteArrayInputStream(cachedEntry.body), lineConsumer);
+
+                return true;
             }
 
-            // remove last separator if there is one
-            String data = sb.toString();
-            int lastSeparatorIndex = data.lastIndexOf(SEPARATOR);
-            if(lastSeparatorIndex != -1) {
-                data = data.substring(0, lastSeparatorIndex);
+            // only responses with validators can be revalidated later
+            String eTag = connection.getHeaderField("ETag");
+            String lastModified = connection.getHeaderField("Last-Modified");
+            if(linkCache == null || (eTag == null && lastModified == null)) {
+                readLines(getInputStream(connection), lineConsumer);
+
+                return true;
             }
 
-            return data;
+            // the lines are given out as the body downloads, and it is only cached once it was read to the end
+            long bodyLength = "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? -1
+                    : connection.getContentLengthLong();
+            readLines(linkCache.cache(link, eTag == null ? "" : eTag, lastModified == null ? "" : lastModified,
+                    getInputStream(connection), bodyLength), lineConsumer);
+
+            return true;
         }
         catch(IOException e) {
         }
+        finally {
+            hostPermits.release();
+        }
 
-        return null;
+        return false;
+    }
+
+    /**
+     * Reads an input stream as UTF-8 text line by line.
+     *
+     * @param inputStream  the input stream, closed when done
+     * @param lineConsumer the consumer that is given each line, without its line separator
+     * @throws IOException on IOException
+     */
+    private static void readLines(InputStream inputStream, Consumer<String> lineConsumer) throws IOException {
+        try(BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"))) {
+            String line = br.readLine();
+
+            while(line != null) {
+                lineConsumer.accept(line);
+
+                line = br.readLine();
+            }
+        }
     }
 
     /**
@@ -244,9 +696,17 @@ public final class LinkTool {
             return null;
         }
 
+        URL url;
         try {
-            URL url = new URL(link);
-            HttpURLConnection httpURLConnection = (HttpURLConnection) url.openConnection();
+            url = new URL(link);
+        }
+        catch(MalformedURLException e) {
+            return null;
+        }
+
+        Semaphore hostPermits = acquireHostPermit(url);
+        try {
+            HttpURLConnection httpURLConnection = (HttpURLConnection) openConnection(url);
             httpURLConnection.setDoInput(true);
             httpURLConnection.setDoOutput(true);
             httpURLConnection.setUseCaches(false);
@@ -260,29 +720,13 @@ public final class LinkTool {
             dataOutputStream.close();
 
             // get response
-            String data = "";
-            InputStreamReader inputStreamReader = new InputStreamReader(httpURLConnection.getInputStream());
-            BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
-
-            String temp = bufferedReader.readLine();
-            while(temp != null) {
-                data += temp + SEPARATOR;
-                temp = bufferedReader.readLine();
-            }
-            bufferedReader.close();
-
-            // remove last separator
-            int lastSeparatorIndex = data.lastIndexOf(SEPARATOR);
-            if(lastSeparatorIndex != -1) {
-                data = data.substring(0, lastSeparatorIndex);
-            }
-
-            return data;
-        }
-        catch(MalformedURLException e) {
+            return readAsString(getInputStream(httpURLConnection));
         }
         catch(IOException e) {
         }
+        finally {
+            hostPermits.release();
+        }
 
         return null;
     }
@@ -305,9 +749,18 @@ public final class LinkTool {
             return true;
         }
 
-        try(InputStream is = new URL(link).openStream();
+        URL url;
+        try {
+            url = new URL(link);
+        }
+        catch(MalformedURLException e) {
+            return false;
+        }
+
+        Semaphore hostPermits = acquireHostPermit(url);
+        try(InputStream is = getInputStream(openConnection(url));
             OutputStream os = new FileOutputStream(filename)) {
-            byte[] b = new byte[1024];
+            byte[] b = new byte[8192];
 
             int length;
             while((length = is.read(b)) != -1) {
@@ -318,6 +771,9 @@ public final class LinkTool {
         }
         catch(IOException e) {
         }
+        finally {
+            hostPermits.release();
+        }
 
         return false;
     }
@@ -0,0 +1,175 @@
+package tool;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Finds any number of markers in a text in a single pass (Aho-Corasick).
+ * The matcher is built once and can then be shared between threads.
+ */
+public final class MarkerMatcher {
+    private final int markerCount;
+    private final char[][] nodeChars;
+    private final int[][] nodeTargets;
+    private final int[] fail;
+    private final int[][] nodeMarkers;
+
+    /**
+     * Listens to the markers found in a text.
+     */
+    public interface MatchListener {
+        /**
+         * Called for each marker found, in the order the markers end in the text.
+         *
+         * @param marker   the index of the marker
+         * @param endIndex the index just after the end of the marker in the text
+         * @return true to keep looking, false to stop
+         */
+        boolean match(int marker, int endIndex);
+    }
+
+    /**
+     * Builds a matcher for the given markers.
+     *
+     * @param markers the markers, none of them empty
+     */
+    public MarkerMatcher(List<String> markers) {
+        markerCount = markers.size();
+
+        // build the trie
+        List<TreeMap<Character, Integer>> childMapList = new ArrayList<>();
+        List<List<Integer>> markerListList = new ArrayList<>();
+        childMapList.add(new TreeMap<Character, Integer>());
+        markerListList.add(new ArrayList<Integer>());
+        for(int marker = 0; marker < markers.size(); marker++) {
+            String str = markers.get(marker);
+            if(str.isEmpty()) {
+                throw new IllegalArgumentException("markers can not be empty");
+            }
+
+            int node = 0;
+            for(int i = 0; i < str.length(); i++) {
+                Integer child = childMapList.get(node).get(str.charAt(i));
+                if(child == null) {
+                    child = childMapList.size();
+                    childMapList.get(node).put(str.charAt(i), child);
+                    childMapList.add(new TreeMap<Character, Integer>());
+                    markerListList.add(new ArrayList<Integer>());
+                }
+                node = child;
+            }
+            markerListList.get(node).add(marker);
+        }
+
+        int nodeCount = childMapList.size();
+        nodeChars = new char[nodeCount][];
+        nodeTargets = new int[nodeCount][];
+        for(int node = 0; node < nodeCount; node++) {
+            Map<Character, Integer> childMap = childMapList.get(node);
+            nodeChars[node] = new char[childMap.size()];
+            nodeTargets[node] = new int[childMap.size()];
+
+            int i = 0;
+            for(Map.Entry<Character, Integer> child : childMap.entrySet()) { // sorted for the binary search
+                nodeChars[node][i] = child.getKey();
+                nodeTargets[node][i] = child.getValue();
+                i++;
+            }
+        }
+
+        // breadth first so a node's fail node is always done before the node
+        fail = new int[nodeCount];
+        Queue<Integer> nodeQueue = new LinkedList<>();
+        for(int child : nodeTargets[0]) {
+            nodeQueue.add(child);
+        }
+        while(!nodeQueue.isEmpty()) {
+            int node = nodeQueue.remove();
+            for(int i = 0; i < nodeChars[node].length; i++) {
+                int child = nodeTargets[node][i];
+                fail[child] = next(fail[node], nodeChars[node][i]);
+                markerListList.get(child).addAll(markerListList.get(fail[child]));
+                nodeQueue.add(child);
+            }
+        }
+
+        nodeMarkers = new int[nodeCount][];
+        for(int node = 0; node < nodeCount; node++) {
+            List<Integer> markerList = markerListList.get(node);
+            nodeMarkers[node] = new int[markerList.size()];
+            for(int i = 0; i < markerList.size(); i++) {
+                nodeMarkers[node][i] = markerList.get(i);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of markers.
+     *
+     * @return the number of markers
+     */
+    public int getMarkerCount() {
+        return markerCount;
+    }
+
+    /**
+     * Finds the markers in a text.
+     *
+     * @param text          the text
+     * @param matchListener the listener told about each marker found
+     */
+    public void match(CharSequence text, MatchListener matchListener) {
+        int node = 0;
+        for(int i = 0; i < text.length(); i++) {
+            node = next(node, text.charAt(i));
+            for(int marker : nodeMarkers[node]) {
+                if(!matchListener.match(marker, i + 1)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the node to go to after a character.
+     *
+     * @param node the current node
+     * @param c    the character
+     * @return the next node
+     */
+    private int next(int node, char c) {
+        while(true) {
+            int i = binarySearch(nodeChars[node], c);
+            if(i >= 0) {
+                return nodeTargets[node][i];
+            }
+            if(node == 0) {
+                return 0;
+            }
+
+            node = fail[node];
+        }
+    }
+
+    private static int binarySearch(char[] chars, char c) {
+        int low = 0, high = chars.length - 1;
+        while(low <= high) {
+            int mid = (low + high) >>> 1;
+            if(chars[mid] < c) {
+                low = mid + 1;
+            }
+            else if(chars[mid] > c) {
+                high = mid - 1;
+            }
+            else {
+                return mid;
+            }
+        }
+
+        return -1;
+    }
+}